@@ -0,0 +1,74 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+import com.ethlo.kfka.KfkaMessage;
+
+/**
+ * Message type with one queryable property, mirroring a typical application message.
+ */
+public class BenchmarkMessage extends KfkaMessage
+{
+    private final Integer userId;
+
+    public BenchmarkMessage(Builder builder)
+    {
+        super(builder);
+        this.userId = builder.userId;
+    }
+
+    public Integer getUserId()
+    {
+        return userId;
+    }
+
+    @Override
+    public List<String> getQueryableProperties()
+    {
+        return List.of("userId");
+    }
+
+    public static class Builder extends KfkaMessage.Builder<BenchmarkMessage>
+    {
+        private Integer userId;
+
+        public Builder userId(Integer userId)
+        {
+            this.userId = userId;
+            return this;
+        }
+
+        @Override
+        public BenchmarkMessage build()
+        {
+            return new BenchmarkMessage(this);
+        }
+    }
+
+    public static BenchmarkMessage of(String topic, String type, int userId, byte[] payload)
+    {
+        final Builder builder = new Builder().userId(userId);
+        builder.topic(topic).type(type).payload(payload);
+        return builder.build();
+    }
+}
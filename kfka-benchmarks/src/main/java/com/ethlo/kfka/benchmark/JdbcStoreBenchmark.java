@@ -0,0 +1,164 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.kfka.KfkaPredicate;
+import com.ethlo.kfka.MessageIdGenerator;
+import com.ethlo.kfka.TimeOrderedMessageIdGenerator;
+import com.ethlo.kfka.compression.GzipPayloadCompressor;
+import com.ethlo.kfka.jdbc.JdbcKfkaConfig;
+import com.ethlo.kfka.jdbc.JdbcKfkaMessageStore;
+import com.ethlo.kfka.jdbc.RowMapper;
+
+/**
+ * Measures {@link JdbcKfkaMessageStore} inserts, full and header-only replays and rewinds against an embedded H2
+ * database holding {@code rows} messages spread over 100 users.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcStoreBenchmark
+{
+    private static final int REPLAY_COUNT = 100;
+
+    private static final RowMapper<BenchmarkMessage> ROW_MAPPER = rs ->
+    {
+        final BenchmarkMessage.Builder builder = new BenchmarkMessage.Builder().userId(rs.getInt("userId"));
+        builder.payload(rs.getBytes("payload"))
+                .timestamp(OffsetDateTime.ofInstant(Instant.ofEpochMilli(rs.getLong("timestamp")), ZoneOffset.UTC))
+                .topic(rs.getString("topic"))
+                .type(rs.getString("type"))
+                .messageId(rs.getString("message_id"));
+        return builder.build();
+    };
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private final MessageIdGenerator idGenerator = new TimeOrderedMessageIdGenerator(1);
+    private JdbcKfkaMessageStore<BenchmarkMessage> store;
+    private byte[] payload;
+    private String replayFromId;
+    private long delivered;
+
+    @Setup
+    public void setup() throws SQLException
+    {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:kfka;DB_CLOSE_DELAY=-1");
+        try (final Connection connection = dataSource.getConnection(); final Statement statement = connection.createStatement())
+        {
+            statement.execute("DROP TABLE IF EXISTS kfka");
+            statement.execute("CREATE TABLE kfka (message_id varchar(36) NOT NULL PRIMARY KEY, timestamp bigint NOT NULL, "
+                    + "payload blob NOT NULL, topic varchar(255) NOT NULL, type varchar(255) NOT NULL, userId int)");
+        }
+
+        store = new JdbcKfkaMessageStore<>(dataSource, ROW_MAPPER, new JdbcKfkaConfig().payloadCompressor(new GzipPayloadCompressor()));
+        payload = Payloads.json(512);
+
+        for (int offset = 0; offset < rows; offset += 1_000)
+        {
+            store.addAll(createMessages(Math.min(1_000, rows - offset)));
+        }
+        replayFromId = store.getMessageIdForRewind(new KfkaPredicate(), REPLAY_COUNT).orElseThrow();
+    }
+
+    private List<BenchmarkMessage> createMessages(final int count)
+    {
+        final List<BenchmarkMessage> messages = new ArrayList<>(count);
+        final OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        for (int i = 0; i < count; i++)
+        {
+            final BenchmarkMessage.Builder builder = new BenchmarkMessage.Builder().userId(i % 100);
+            builder.topic("chat").type("message").payload(payload).timestamp(now).messageId(idGenerator.get());
+            messages.add(builder.build());
+        }
+        return messages;
+    }
+
+    @Benchmark
+    public void insert(final InsertBatch batch)
+    {
+        store.addAll(createMessages(batch.size));
+    }
+
+    @Benchmark
+    public long sendAfter()
+    {
+        store.sendAfter(replayFromId, new KfkaPredicate(), msg -> delivered++);
+        return delivered;
+    }
+
+    @Benchmark
+    public long sendHeadersAfter()
+    {
+        store.sendHeadersAfter(replayFromId, new KfkaPredicate(), header -> delivered++);
+        return delivered;
+    }
+
+    @Benchmark
+    public long sendAfterFiltered()
+    {
+        store.sendAfter(replayFromId, new KfkaPredicate().topic("chat").addPropertyMatch("userId", 7), msg -> delivered++);
+        return delivered;
+    }
+
+    @Benchmark
+    public long rewind()
+    {
+        final KfkaPredicate predicate = new KfkaPredicate().topic("chat");
+        store.getMessageIdForRewind(predicate, REPLAY_COUNT).ifPresent(id -> delivered += store.sendIncluding(id, predicate, msg -> {}));
+        return delivered;
+    }
+
+    @State(Scope.Benchmark)
+    public static class InsertBatch
+    {
+        @Param({"1", "100"})
+        private int size;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+import com.ethlo.kfka.KfkaMessage;
+import com.ethlo.kfka.KfkaPredicate;
+import com.ethlo.kfka.util.ReflectionUtil;
+
+/**
+ * The reflective matching that {@link KfkaPredicate#matches(KfkaMessage)} used before predicates were compiled,
+ * kept as a baseline.
+ */
+public class LegacyPredicateMatcher
+{
+    private LegacyPredicateMatcher()
+    {
+    }
+
+    public static boolean matches(KfkaPredicate predicate, KfkaMessage msg)
+    {
+        final boolean basicMatch = (predicate.getType() == null || Objects.equals(msg.getType(), predicate.getType()))
+                && (predicate.getTopic() == null || Objects.equals(msg.getTopic(), predicate.getTopic()));
+
+        if (predicate.getPropertyMatch().isEmpty())
+        {
+            return basicMatch;
+        }
+
+        final Collection<Field> fields = ReflectionUtil.getFields(msg.getClass()).values();
+        for (Map.Entry<String, Serializable> e : predicate.getPropertyMatch().entrySet())
+        {
+            final String propertyName = e.getKey();
+            final Serializable filterValue = e.getValue();
+
+            for (Field field : fields)
+            {
+                if (field.getName().equals(propertyName))
+                {
+                    try
+                    {
+                        final Object value = field.get(msg);
+                        if (!Objects.equals(value, filterValue))
+                        {
+                            return false;
+                        }
+                    }
+                    catch (IllegalAccessException exc)
+                    {
+                        throw new RuntimeException(exc);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
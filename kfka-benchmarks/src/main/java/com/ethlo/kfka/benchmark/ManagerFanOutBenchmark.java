@@ -0,0 +1,89 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.kfka.KfkaManager;
+import com.ethlo.kfka.KfkaManagerImpl;
+import com.ethlo.kfka.KfkaPredicate;
+import com.ethlo.kfka.TimeOrderedMessageIdGenerator;
+import com.ethlo.kfka.persistence.RingBufferKfkaMessageStore;
+
+/**
+ * Measures {@link KfkaManager#add} with a growing number of registered listeners, either all matching the message or
+ * only one of them, over the in-memory store so the fan-out dominates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManagerFanOutBenchmark
+{
+    @Param({"1", "100", "10000"})
+    private int listeners;
+
+    @Param({"all", "one"})
+    private String matching;
+
+    private KfkaManager<BenchmarkMessage> manager;
+    private BenchmarkMessage message;
+    private long delivered;
+
+    @Setup
+    public void setup()
+    {
+        manager = new KfkaManagerImpl<>(new RingBufferKfkaMessageStore<>(1 << 16, Duration.ZERO), new TimeOrderedMessageIdGenerator(1));
+        for (int i = 0; i < listeners; i++)
+        {
+            final KfkaPredicate predicate = new KfkaPredicate().topic("chat");
+            if ("one".equals(matching))
+            {
+                predicate.addPropertyMatch("userId", i);
+            }
+            manager.addListener(msg -> delivered++, predicate);
+        }
+        message = BenchmarkMessage.of("chat", "message", 0, "payload".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public long add()
+    {
+        manager.add(message);
+        return delivered;
+    }
+}
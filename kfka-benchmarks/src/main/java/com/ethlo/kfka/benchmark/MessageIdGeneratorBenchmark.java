@@ -0,0 +1,81 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.kfka.MessageIdGenerator;
+import com.ethlo.kfka.TimeOrderedMessageIdGenerator;
+import com.ethlo.kfka.util.RandomUtil;
+
+/**
+ * Measures id generation with one thread and with all available threads sharing a single generator.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageIdGeneratorBenchmark
+{
+    private final MessageIdGenerator timeOrdered = new TimeOrderedMessageIdGenerator(1);
+    private final MessageIdGenerator random = () -> RandomUtil.generateAsciiString(12);
+
+    @Benchmark
+    @Threads(1)
+    public String timeOrdered()
+    {
+        return timeOrdered.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String timeOrderedContended()
+    {
+        return timeOrdered.get();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String random()
+    {
+        return random.get();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String randomContended()
+    {
+        return random.get();
+    }
+}
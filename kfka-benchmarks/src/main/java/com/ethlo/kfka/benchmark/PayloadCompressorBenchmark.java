@@ -0,0 +1,93 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.kfka.compression.DeflatePayloadCompressor;
+import com.ethlo.kfka.compression.GzipPayloadCompressor;
+import com.ethlo.kfka.compression.Lz4PayloadCompressor;
+import com.ethlo.kfka.compression.NopPayloadCompressor;
+import com.ethlo.kfka.compression.PayloadCompressor;
+
+/**
+ * Measures compression and decompression of JSON payloads of typical sizes for each {@link PayloadCompressor}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadCompressorBenchmark
+{
+    @Param({"gzip", "deflate", "lz4", "nop"})
+    private String compressor;
+
+    @Param({"events", "documents"})
+    private String corpus;
+
+    @Param({"256", "2048", "16384"})
+    private int size;
+
+    private PayloadCompressor payloadCompressor;
+    private byte[] payload;
+    private byte[] compressed;
+
+    @Setup
+    public void setup()
+    {
+        payloadCompressor = switch (compressor)
+        {
+            case "gzip" -> new GzipPayloadCompressor();
+            case "deflate" -> new DeflatePayloadCompressor();
+            case "lz4" -> new Lz4PayloadCompressor();
+            case "nop" -> new NopPayloadCompressor();
+            default -> throw new IllegalArgumentException(compressor);
+        };
+        payload = "events".equals(corpus) ? Payloads.json(size) : Payloads.document(size);
+        compressed = payloadCompressor.compress(payload);
+    }
+
+    @Benchmark
+    public byte[] compress()
+    {
+        return payloadCompressor.compress(payload);
+    }
+
+    @Benchmark
+    public byte[] decompress()
+    {
+        return payloadCompressor.decompress(compressed);
+    }
+}
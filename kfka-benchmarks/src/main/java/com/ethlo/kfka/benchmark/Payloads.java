@@ -0,0 +1,68 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates repeatable payloads resembling typical JSON events.
+ */
+public final class Payloads
+{
+    private Payloads()
+    {
+    }
+
+    public static byte[] json(final int size)
+    {
+        final Random random = new Random(size);
+        final StringBuilder sb = new StringBuilder(size + 128).append('[');
+        while (sb.length() < size)
+        {
+            sb.append("{\"userId\":").append(random.nextInt(10_000))
+                    .append(",\"type\":\"message\",\"text\":\"").append(Long.toString(random.nextLong(), 36))
+                    .append("\",\"score\":").append(random.nextDouble())
+                    .append("},");
+        }
+        return Arrays.copyOf(sb.toString().getBytes(StandardCharsets.UTF_8), size);
+    }
+
+    /**
+     * A text-heavy JSON document with nested objects and repeated keys, like a typical entity change event.
+     */
+    public static byte[] document(final int size)
+    {
+        final String[] words = {"order", "customer", "shipped", "pending", "address", "the", "item", "quantity", "price", "note"};
+        final Random random = new Random(size);
+        final StringBuilder sb = new StringBuilder(size + 256).append("{\"entity\":\"order\",\"changes\":[");
+        while (sb.length() < size)
+        {
+            sb.append("{\"field\":\"").append(words[random.nextInt(words.length)])
+                    .append("\",\"before\":{\"value\":\"").append(words[random.nextInt(words.length)]).append(' ').append(words[random.nextInt(words.length)])
+                    .append("\",\"updated\":\"2024-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10)).append("T12:00:00Z\"}")
+                    .append(",\"after\":{\"value\":\"").append(words[random.nextInt(words.length)])
+                    .append("\",\"updatedBy\":").append(random.nextInt(1_000)).append("}},");
+        }
+        return Arrays.copyOf(sb.toString().getBytes(StandardCharsets.UTF_8), size);
+    }
+}
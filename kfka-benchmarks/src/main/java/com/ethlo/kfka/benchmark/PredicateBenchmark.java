@@ -0,0 +1,81 @@
+package com.ethlo.kfka.benchmark;
+
+/*-
+ * #%L
+ * kfka-benchmarks
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ethlo.kfka.KfkaPredicate;
+
+/**
+ * Compares compiled {@link KfkaPredicate} matching with the previous reflective implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PredicateBenchmark
+{
+    @Param({"topic", "property", "mismatch"})
+    private String filter;
+
+    private KfkaPredicate predicate;
+    private BenchmarkMessage message;
+
+    @Setup
+    public void setup()
+    {
+        message = BenchmarkMessage.of("chat", "message", 123, "payload".getBytes(StandardCharsets.UTF_8));
+        predicate = switch (filter)
+        {
+            case "topic" -> new KfkaPredicate().topic("chat");
+            case "property" -> new KfkaPredicate().topic("chat").addPropertyMatch("userId", 123);
+            case "mismatch" -> new KfkaPredicate().topic("chat").addPropertyMatch("userId", 321);
+            default -> throw new IllegalArgumentException(filter);
+        };
+    }
+
+    @Benchmark
+    public boolean compiled()
+    {
+        return predicate.matches(message);
+    }
+
+    @Benchmark
+    public boolean reflective()
+    {
+        return LegacyPredicateMatcher.matches(predicate, message);
+    }
+}
@@ -0,0 +1,374 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2021 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+import com.ethlo.kfka.metrics.KfkaMetrics;
+
+/**
+ * The manager options. The fluent setters return the concrete configuration type, so a store configuration can extend
+ * this class and add its own options without overriding these.
+ *
+ * @param <C> The concrete configuration type
+ */
+public abstract class AbstractKfkaConfig<C extends AbstractKfkaConfig<C>>
+{
+    private String name = "kfka";
+    private Duration ttl = Duration.ZERO; // Forever
+    private int batchSize = 500;
+    private Duration cleanInterval = Duration.ofHours(1);
+    private int evictionChunkSize = 1_000;
+    private double evictionDutyCycle = 0.5;
+    private Duration tailMinInterval;
+    private Duration tailMaxInterval;
+    private Duration tailSettleWindow = Duration.ofSeconds(1);
+    private int tailRecentIds = 100_000;
+    private int handoffBufferSize = 10_000;
+    private int replayBatchSize = 1_000;
+    private Duration replayCoalesceWindow;
+    private Executor dispatchExecutor;
+    private int dispatchQueueSize = 1_000;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private KfkaMetrics metrics = KfkaMetrics.NOOP;
+
+    /**
+     * Time to live for the event. Use 0 for forever.
+     * <p>
+     * The manager only uses it to decide whether to evict in the background. Which messages have expired is decided by
+     * the store, so give it the same ttl, for instance by passing a <code>JdbcKfkaConfig</code> to both.
+     *
+     * @param ttl The duration the entity will be kept
+     * @return This configuration (for fluent programming)
+     */
+    public C ttl(Duration ttl)
+    {
+        this.ttl = ttl;
+        return self();
+    }
+
+    public Duration getTtl()
+    {
+        return ttl;
+    }
+
+    public C name(String name)
+    {
+        this.name = name;
+        return self();
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public C batchSize(int size)
+    {
+        this.batchSize = size;
+        return self();
+    }
+
+    public Duration getCleanInterval()
+    {
+        return cleanInterval;
+    }
+
+    public void setCleanInterval(Duration cleanInterval)
+    {
+        this.cleanInterval = cleanInterval;
+    }
+
+    /**
+     * How often the manager evicts expired messages in the background, when a {@link #ttl(Duration) ttl} is set.
+     * Use 0 to disable, and call {@link KfkaManager#evictExpired()} yourself. Without a ttl here nothing is evicted in
+     * the background, even if the store has a ttl of its own.
+     *
+     * @param cleanInterval The time between the end of one eviction run and the start of the next
+     * @return This configuration (for fluent programming)
+     */
+    public C cleanInterval(Duration cleanInterval)
+    {
+        Assert.notNull(cleanInterval, "cleanInterval may not be null");
+        Assert.isTrue(!cleanInterval.isNegative(), () -> "cleanInterval may not be negative");
+        this.cleanInterval = cleanInterval;
+        return self();
+    }
+
+    /**
+     * The maximum number of expired messages deleted per statement, to keep locks short and replicas in step.
+     *
+     * @param evictionChunkSize The chunk size
+     * @return This configuration (for fluent programming)
+     */
+    public C evictionChunkSize(int evictionChunkSize)
+    {
+        Assert.isTrue(evictionChunkSize > 0, () -> "evictionChunkSize must be positive");
+        this.evictionChunkSize = evictionChunkSize;
+        return self();
+    }
+
+    public int getEvictionChunkSize()
+    {
+        return evictionChunkSize;
+    }
+
+    /**
+     * The share of time an eviction run may spend deleting. After each chunk, eviction pauses in proportion to how
+     * long the chunk took, so it backs off by itself when the database is busy. Use 1 to not pause at all.
+     *
+     * @param evictionDutyCycle A value greater than 0 and at most 1
+     * @return This configuration (for fluent programming)
+     */
+    public C evictionDutyCycle(double evictionDutyCycle)
+    {
+        Assert.isTrue(evictionDutyCycle > 0 && evictionDutyCycle <= 1, () -> "evictionDutyCycle must be greater than 0 and at most 1");
+        this.evictionDutyCycle = evictionDutyCycle;
+        return self();
+    }
+
+    public double getEvictionDutyCycle()
+    {
+        return evictionDutyCycle;
+    }
+
+    /**
+     * Deliver messages written by other nodes sharing the store to the listeners of this node, by polling the store
+     * for new messages. Polling is done at the minimum interval while messages keep arriving, and backs off towards
+     * the maximum interval while there are none.
+     *
+     * @param minInterval The time between polls while busy
+     * @param maxInterval The time between polls while idle
+     * @return This configuration (for fluent programming)
+     */
+    public C tail(Duration minInterval, Duration maxInterval)
+    {
+        Assert.notNull(minInterval, "minInterval may not be null");
+        Assert.notNull(maxInterval, "maxInterval may not be null");
+        Assert.isTrue(minInterval.toNanos() > 0, () -> "minInterval must be positive");
+        Assert.isTrue(maxInterval.compareTo(minInterval) >= 0, () -> "maxInterval may not be less than minInterval");
+        this.tailMinInterval = minInterval;
+        this.tailMaxInterval = maxInterval;
+        return self();
+    }
+
+    public boolean isTail()
+    {
+        return tailMinInterval != null;
+    }
+
+    public Duration getTailMinInterval()
+    {
+        return tailMinInterval;
+    }
+
+    public Duration getTailMaxInterval()
+    {
+        return tailMaxInterval;
+    }
+
+    /**
+     * The time a message written by another node may take to become visible after messages with higher ids, such as
+     * when its transaction commits late. Each poll of the {@link #tail(Duration, Duration) tailer} reads the messages
+     * of this window again, and skips those it has seen before.
+     *
+     * @param tailSettleWindow The settle window, which may be 0 to only read messages after the last one read
+     * @return This configuration (for fluent programming)
+     */
+    public C tailSettleWindow(Duration tailSettleWindow)
+    {
+        Assert.notNull(tailSettleWindow, "tailSettleWindow may not be null");
+        Assert.isTrue(!tailSettleWindow.isNegative(), () -> "tailSettleWindow may not be negative");
+        this.tailSettleWindow = tailSettleWindow;
+        return self();
+    }
+
+    public Duration getTailSettleWindow()
+    {
+        return tailSettleWindow;
+    }
+
+    /**
+     * The number of message ids the {@link #tail(Duration, Duration) tailer} remembers to avoid delivering a message
+     * twice. It must exceed the number of messages written by all nodes within the
+     * {@link #tailSettleWindow(Duration) settle window}, or messages read again are delivered again.
+     *
+     * @param tailRecentIds The number of message ids
+     * @return This configuration (for fluent programming)
+     */
+    public C tailRecentIds(int tailRecentIds)
+    {
+        Assert.isTrue(tailRecentIds > 0, () -> "tailRecentIds must be positive");
+        this.tailRecentIds = tailRecentIds;
+        return self();
+    }
+
+    public int getTailRecentIds()
+    {
+        return tailRecentIds;
+    }
+
+    /**
+     * The maximum number of live messages held back per listener while it is replaying stored messages, or per
+     * {@link KfkaManager#publisher(KfkaPredicate) publisher} subscription until requested. Beyond that, the held back
+     * messages are discarded and replayed from the store instead.
+     *
+     * @param handoffBufferSize The buffer capacity
+     * @return This configuration (for fluent programming)
+     */
+    public C handoffBufferSize(int handoffBufferSize)
+    {
+        Assert.isTrue(handoffBufferSize > 0, () -> "handoffBufferSize must be positive");
+        this.handoffBufferSize = handoffBufferSize;
+        return self();
+    }
+
+    public int getHandoffBufferSize()
+    {
+        return handoffBufferSize;
+    }
+
+    /**
+     * The maximum number of messages passed to {@link KfkaMessageListener#onMessages(java.util.List)} at once when
+     * replaying, or when delivering messages read by {@link #tail(Duration, Duration) tailing}. This also bounds the
+     * page size when a publisher subscription reads from the store.
+     *
+     * @param replayBatchSize The maximum batch size
+     * @return This configuration (for fluent programming)
+     */
+    public C replayBatchSize(int replayBatchSize)
+    {
+        Assert.isTrue(replayBatchSize > 0, () -> "replayBatchSize must be positive");
+        this.replayBatchSize = replayBatchSize;
+        return self();
+    }
+
+    public int getReplayBatchSize()
+    {
+        return replayBatchSize;
+    }
+
+    /**
+     * Share one store scan between listeners that are added concurrently with equal predicates and a last seen
+     * message id, such as when many clients reconnect at once. The first of them waits for the given window for
+     * others to join before starting the scan. Use <code>null</code> (the default) to replay for each listener
+     * separately.
+     *
+     * @param window The time to wait for other replays to join, which may be 0
+     * @return This configuration (for fluent programming)
+     */
+    public C coalesceReplays(Duration window)
+    {
+        Assert.isTrue(window == null || !window.isNegative(), () -> "window may not be negative");
+        this.replayCoalesceWindow = window;
+        return self();
+    }
+
+    public Duration getReplayCoalesceWindow()
+    {
+        return replayCoalesceWindow;
+    }
+
+    /**
+     * Deliver real-time messages to listeners asynchronously. Each listener gets its own bounded queue that is drained
+     * by the given executor, so a slow listener does not hold up the producer. Use <code>null</code> (the default) to
+     * deliver on the producer thread. {@link KfkaManager#publisher(KfkaPredicate) Publisher} subscriptions are never
+     * served on the producer thread, and use the common fork join pool if no executor is set.
+     *
+     * @param dispatchExecutor The executor to drain the listener queues
+     * @return This configuration (for fluent programming)
+     */
+    public C dispatchExecutor(Executor dispatchExecutor)
+    {
+        this.dispatchExecutor = dispatchExecutor;
+        return self();
+    }
+
+    public Executor getDispatchExecutor()
+    {
+        return dispatchExecutor;
+    }
+
+    /**
+     * The maximum number of messages queued per listener when dispatching asynchronously.
+     *
+     * @param dispatchQueueSize The queue capacity
+     * @return This configuration (for fluent programming)
+     */
+    public C dispatchQueueSize(int dispatchQueueSize)
+    {
+        Assert.isTrue(dispatchQueueSize > 0, () -> "dispatchQueueSize must be positive");
+        this.dispatchQueueSize = dispatchQueueSize;
+        return self();
+    }
+
+    public int getDispatchQueueSize()
+    {
+        return dispatchQueueSize;
+    }
+
+    /**
+     * What to do when the queue of a listener is full when dispatching asynchronously.
+     *
+     * @param overflowPolicy The overflow policy
+     * @return This configuration (for fluent programming)
+     */
+    public C overflowPolicy(OverflowPolicy overflowPolicy)
+    {
+        Assert.notNull(overflowPolicy, "overflowPolicy may not be null");
+        this.overflowPolicy = overflowPolicy;
+        return self();
+    }
+
+    public OverflowPolicy getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+
+    /**
+     * Where to report latencies and counts from the hot paths. Defaults to {@link KfkaMetrics#NOOP}.
+     *
+     * @param metrics The metrics to report to
+     * @return This configuration (for fluent programming)
+     */
+    public C metrics(KfkaMetrics metrics)
+    {
+        Assert.notNull(metrics, "metrics may not be null");
+        this.metrics = metrics;
+        return self();
+    }
+
+    public KfkaMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return This configuration as its concrete type
+     */
+    protected abstract C self();
+}
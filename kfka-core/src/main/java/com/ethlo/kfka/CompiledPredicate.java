@@ -0,0 +1,131 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.ethlo.kfka.util.ReflectionUtil;
+
+/**
+ * A {@link KfkaPredicate} resolved against one concrete message class. Property lookups are bound to field getters up
+ * front, and fields of primitive type are compared without boxing when the filter value is of the matching wrapper
+ * type.
+ */
+final class CompiledPredicate
+{
+    private final Class<?> messageType;
+    private final String topic;
+    private final String type;
+    private final PropertyMatcher[] propertyMatchers;
+
+    private CompiledPredicate(Class<?> messageType, String topic, String type, PropertyMatcher[] propertyMatchers)
+    {
+        this.messageType = messageType;
+        this.topic = topic;
+        this.type = type;
+        this.propertyMatchers = propertyMatchers;
+    }
+
+    static CompiledPredicate compile(KfkaPredicate predicate, Class<? extends KfkaMessage> messageType)
+    {
+        final List<PropertyMatcher> matchers = new ArrayList<>();
+        for (final Map.Entry<String, Serializable> e : predicate.getPropertyMatch().entrySet())
+        {
+            // Properties not present on the message type are ignored
+            final Optional<MethodHandle> getter = ReflectionUtil.getGetter(messageType, e.getKey());
+            getter.ifPresent(mh -> matchers.add(createMatcher(mh, e.getValue())));
+        }
+        return new CompiledPredicate(messageType, predicate.getTopic(), predicate.getType(), matchers.toArray(new PropertyMatcher[0]));
+    }
+
+    private static PropertyMatcher createMatcher(MethodHandle getter, Serializable expected)
+    {
+        final Class<?> fieldType = getter.type().returnType();
+        if (fieldType == int.class && expected instanceof Integer i)
+        {
+            final int expectedValue = i;
+            final MethodHandle mh = getter.asType(MethodType.methodType(int.class, Object.class));
+            return msg -> (int) mh.invokeExact(msg) == expectedValue;
+        }
+        else if (fieldType == long.class && expected instanceof Long l)
+        {
+            final long expectedValue = l;
+            final MethodHandle mh = getter.asType(MethodType.methodType(long.class, Object.class));
+            return msg -> (long) mh.invokeExact(msg) == expectedValue;
+        }
+        else if (fieldType == boolean.class && expected instanceof Boolean b)
+        {
+            final boolean expectedValue = b;
+            final MethodHandle mh = getter.asType(MethodType.methodType(boolean.class, Object.class));
+            return msg -> (boolean) mh.invokeExact(msg) == expectedValue;
+        }
+
+        final MethodHandle mh = getter.asType(MethodType.methodType(Object.class, Object.class));
+        return msg -> Objects.equals(mh.invokeExact(msg), expected);
+    }
+
+    Class<?> getMessageType()
+    {
+        return messageType;
+    }
+
+    boolean matches(KfkaMessage msg)
+    {
+        // Topic and type apply also when matching on properties, which they did not in earlier versions
+        if ((type != null && !type.equals(msg.getType())) || (topic != null && !topic.equals(msg.getTopic())))
+        {
+            return false;
+        }
+
+        try
+        {
+            for (final PropertyMatcher matcher : propertyMatchers)
+            {
+                if (!matcher.matches(msg))
+                {
+                    return false;
+                }
+            }
+        }
+        catch (RuntimeException | Error exc)
+        {
+            throw exc;
+        }
+        catch (Throwable exc)
+        {
+            throw new IllegalStateException(exc);
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface PropertyMatcher
+    {
+        boolean matches(Object msg) throws Throwable;
+    }
+}
@@ -0,0 +1,166 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ethlo.kfka.persistence.KfkaMessageStore;
+
+/**
+ * Evicts expired messages in chunks, pausing between chunks in proportion to how long each took, so that eviction
+ * yields to other work on a busy database instead of holding long locks.
+ */
+class EvictionScheduler implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(EvictionScheduler.class);
+    private static final long MAX_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final KfkaMessageStore<?> store;
+    private final int chunkSize;
+    private final double dutyCycle;
+    private final Lock running = new ReentrantLock();
+    private ScheduledExecutorService executor;
+    private volatile boolean closed;
+
+    EvictionScheduler(KfkaMessageStore<?> store, int chunkSize, double dutyCycle)
+    {
+        this.store = store;
+        this.chunkSize = chunkSize;
+        this.dutyCycle = dutyCycle;
+    }
+
+    synchronized void start(Duration interval)
+    {
+        if (executor != null)
+        {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            final Thread thread = new Thread(r, "kfka-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::evictSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void evictSafely()
+    {
+        try
+        {
+            evict();
+        }
+        catch (RuntimeException exc)
+        {
+            // Do not let the exception cancel the schedule, the next run will try again
+            logger.warn("Eviction of expired messages failed", exc);
+        }
+    }
+
+    /**
+     * Evict all expired messages, chunk by chunk.
+     *
+     * @return The number of messages evicted, or 0 if another eviction was already running
+     */
+    long evict()
+    {
+        if (!running.tryLock())
+        {
+            logger.debug("Eviction is already running");
+            return 0;
+        }
+
+        try
+        {
+            final long started = System.nanoTime();
+            long total = 0;
+            int chunks = 0;
+            while (!closed)
+            {
+                final long chunkStarted = System.nanoTime();
+                final long deleted = store.clearExpired(chunkSize);
+                final long elapsed = System.nanoTime() - chunkStarted;
+                total += deleted;
+                chunks++;
+                // A chunk may exceed the chunk size if expired messages were added to its range concurrently
+                if (deleted < chunkSize)
+                {
+                    break;
+                }
+
+                final long pause = getPauseNanos(elapsed);
+                logger.debug("Evicted {} expired messages so far, last chunk took {} ms, pausing for {} ms", total, TimeUnit.NANOSECONDS.toMillis(elapsed), TimeUnit.NANOSECONDS.toMillis(pause));
+                if (!pause(pause))
+                {
+                    break;
+                }
+            }
+
+            if (total > 0)
+            {
+                logger.info("Evicted {} expired messages in {} chunks in {} ms", total, chunks, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            return total;
+        }
+        finally
+        {
+            running.unlock();
+        }
+    }
+
+    long getPauseNanos(long chunkNanos)
+    {
+        return Math.min((long) (chunkNanos * (1 - dutyCycle) / dutyCycle), MAX_PAUSE_NANOS);
+    }
+
+    private boolean pause(long nanos)
+    {
+        try
+        {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hands a listener over from replaying stored messages to receiving live ones without gaps or duplicates.
+ * Live messages arriving during the replay are held back, and are delivered after it unless the replay already
+ * delivered them. Should more live messages arrive than can be held, they are discarded and read from the store
+ * instead, where they were written before being dispatched.
+ * <p>
+ * Only the ids of the last <code>capacity</code> replayed messages are remembered. A live message could only have
+ * been replayed as well if it was written after the listener was added, and no more live messages than that can be
+ * held, so this covers them as long as the store replays them after the messages written before.
+ *
+ * @param <T> The message type
+ */
+class HandoffListener<T extends KfkaMessage> implements KfkaMessageListener<T>
+{
+    private final KfkaMessageListener<T> target;
+    private final int capacity;
+    private final int batchSize;
+    private List<T> buffer = new ArrayList<>();
+    private boolean overflowed;
+    private String lastDeliveredId;
+
+    /**
+     * @param batchSize The maximum number of replayed messages to pass to the listener at once
+     */
+    HandoffListener(KfkaMessageListener<T> target, int capacity, int batchSize)
+    {
+        this.target = target;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onMessage(T msg)
+    {
+        if (!holdBack(List.of(msg)))
+        {
+            target.onMessage(msg);
+        }
+    }
+
+    @Override
+    public void onMessages(List<T> msgs)
+    {
+        if (!holdBack(msgs))
+        {
+            target.onMessages(msgs);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the messages were held back, or discarded because too many were
+     */
+    private synchronized boolean holdBack(List<T> msgs)
+    {
+        if (buffer == null)
+        {
+            return false;
+        }
+
+        if (!overflowed)
+        {
+            if (buffer.size() + msgs.size() > capacity)
+            {
+                overflowed = true;
+                buffer.clear();
+            }
+            else
+            {
+                buffer.addAll(msgs);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replay to the listener, then go live.
+     *
+     * @param listener The listener to replay to
+     * @param replay   Replays the initial messages to the given listener
+     * @param after    Replays the messages after the given message id to the given listener
+     * @return The number of messages replayed
+     */
+    int replay(KfkaMessageListener<T> listener, ToIntFunction<KfkaMessageListener<T>> replay, BiFunction<String, KfkaMessageListener<T>, Integer> after)
+    {
+        // Only needed until live, so it is released along with the buffer
+        final RecentMessageIds delivered = new RecentMessageIds(capacity);
+
+        // Pass the replayed messages on in chunks, so the listener can handle them together
+        final List<T> chunk = new ArrayList<>();
+        final KfkaMessageListener<T> replayed = msg ->
+        {
+            if (delivered.add(msg.getMessageId()))
+            {
+                lastDeliveredId = msg.getMessageId();
+                chunk.add(msg);
+                if (chunk.size() >= batchSize)
+                {
+                    flush(chunk, listener);
+                }
+            }
+        };
+
+        int sent = replay.applyAsInt(replayed);
+        flush(chunk, listener);
+        while (true)
+        {
+            final List<T> pending;
+            synchronized (this)
+            {
+                if (overflowed)
+                {
+                    overflowed = false;
+                    pending = null;
+                }
+                else if (buffer.isEmpty())
+                {
+                    buffer = null;
+                    return sent;
+                }
+                else
+                {
+                    pending = buffer;
+                    buffer = new ArrayList<>();
+                }
+            }
+
+            if (pending == null)
+            {
+                // Catch up from the store, as live messages were lost in the meantime
+                sent += lastDeliveredId != null ? after.apply(lastDeliveredId, replayed) : replay.applyAsInt(replayed);
+                flush(chunk, listener);
+                continue;
+            }
+
+            // Deliver on this thread, so that the held back messages cannot overtake the replay or each other. A live
+            // message with a lower id than the replayed ones may have been written too late to be replayed.
+            for (final T msg : pending)
+            {
+                if (delivered.add(msg.getMessageId()))
+                {
+                    if (lastDeliveredId == null || msg.getMessageId().compareTo(lastDeliveredId) > 0)
+                    {
+                        lastDeliveredId = msg.getMessageId();
+                    }
+                    chunk.add(msg);
+                }
+            }
+            flush(chunk, listener);
+        }
+    }
+
+    private void flush(List<T> chunk, KfkaMessageListener<T> listener)
+    {
+        if (!chunk.isEmpty())
+        {
+            final List<T> msgs = List.copyOf(chunk);
+            chunk.clear();
+            listener.onMessages(msgs);
+        }
+    }
+}
@@ -20,61 +20,11 @@ package com.ethlo.kfka;
  * #L%
  */
 
-import java.time.Duration;
-
-public class KfkaConfig
+public class KfkaConfig extends AbstractKfkaConfig<KfkaConfig>
 {
-    private String name = "kfka";
-    private Duration ttl = Duration.ZERO; // Forever
-    private int batchSize = 500;
-    private Duration cleanInterval = Duration.ofHours(1);
-
-    /**
-     * Time to live for the event. Use 0 for forever.
-     *
-     * @param ttl The duration the entity will be kept
-     * @return This configuration (for fluent programming)
-     */
-    public KfkaConfig ttl(Duration ttl)
+    @Override
+    protected KfkaConfig self()
     {
-        this.ttl = ttl;
         return this;
     }
-
-    public Duration getTtl()
-    {
-        return ttl;
-    }
-
-    public KfkaConfig name(String name)
-    {
-        this.name = name;
-        return this;
-    }
-
-    public String getName()
-    {
-        return name;
-    }
-
-    public int getBatchSize()
-    {
-        return batchSize;
-    }
-
-    public KfkaConfig batchSize(int size)
-    {
-        this.batchSize = size;
-        return this;
-    }
-
-    public Duration getCleanInterval()
-    {
-        return cleanInterval;
-    }
-
-    public void setCleanInterval(Duration cleanInterval)
-    {
-        this.cleanInterval = cleanInterval;
-    }
 }
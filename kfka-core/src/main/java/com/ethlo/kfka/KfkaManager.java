@@ -21,13 +21,30 @@ package com.ethlo.kfka;
  */
 
 import java.util.List;
+import java.util.concurrent.Flow;
 
-public interface KfkaManager<T extends KfkaMessage>
+public interface KfkaManager<T extends KfkaMessage> extends AutoCloseable
 {
     void addAll(List<T> msgs);
 
     long size();
 
+    /**
+     * The number of messages matching the predicate. This default can only count all messages, implementations should
+     * override it.
+     *
+     * @param predicate The filter to apply
+     * @return The number of matching messages
+     */
+    default long size(KfkaPredicate predicate)
+    {
+        if (!predicate.equals(new KfkaPredicate()))
+        {
+            throw new UnsupportedOperationException("Counting by predicate is not supported by " + getClass().getName());
+        }
+        return size();
+    }
+
     default void addListener(KfkaMessageListener<T> listener)
     {
         addListener(listener, new KfkaPredicate());
@@ -43,8 +60,56 @@ public interface KfkaManager<T extends KfkaMessage>
 
     void removeListener(KfkaMessageListener<T> listener);
 
+    /**
+     * A publisher of the live messages matching the predicate. Each subscriber gets messages only as it requests
+     * them, with the live messages it has not yet requested held in a bounded buffer. Should that overflow, the
+     * subscription reads the messages from the store instead.
+     *
+     * @param kfkaPredicate The filter to apply
+     * @return The publisher. Its subscriptions only end by being cancelled, or with an error.
+     */
+    default Flow.Publisher<T> publisher(KfkaPredicate kfkaPredicate)
+    {
+        return publisher(kfkaPredicate, null);
+    }
+
+    /**
+     * A publisher of the messages matching the predicate after the given message id, followed by the live
+     * messages. The stored messages are read from the store a page at a time, as the subscriber requests them.
+     *
+     * @param kfkaPredicate The filter to apply
+     * @param lastMessageId The last message id seen, or <code>null</code> for live messages only
+     * @return The publisher
+     */
+    Flow.Publisher<T> publisher(KfkaPredicate kfkaPredicate, String lastMessageId);
+
+    /**
+     * A publisher of (up to) the given number of latest messages matching the predicate, followed by the live
+     * messages. The stored messages are read from the store a page at a time, as the subscriber requests them.
+     *
+     * @param kfkaPredicate The filter to apply
+     * @param rewind        The number of messages to rewind
+     * @return The publisher
+     */
+    Flow.Publisher<T> publisher(KfkaPredicate kfkaPredicate, int rewind);
+
+    /**
+     * Evict the expired messages now, in chunks as configured. This is done periodically in the background when
+     * both a ttl and a clean interval are configured.
+     */
     void evictExpired();
 
+    /**
+     * Stop the background threads of the manager: the periodic eviction of expired messages and, when configured, the
+     * tailing of the store for messages added by other nodes. This does not wait for an eviction chunk or poll that is
+     * in progress. Registered listeners and subscriptions are left as they are, and neither the store nor a configured
+     * dispatch executor is closed.
+     */
+    @Override
+    default void close()
+    {
+    }
+
     default T add(T value)
     {
         addAll(List.of(value));
@@ -20,29 +20,73 @@ package com.ethlo.kfka;
  * #L%
  */
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ethlo.kfka.metrics.KfkaMetrics;
 import com.ethlo.kfka.persistence.KfkaMessageStore;
 
 public class KfkaManagerImpl<T extends KfkaMessage> implements KfkaManager<T>
 {
     private static final Logger logger = LoggerFactory.getLogger(KfkaManagerImpl.class);
     private final KfkaMessageStore<T> kfkaMessageStore;
-    private final ConcurrentMap<KfkaMessageListener<T>, KfkaPredicate> msgListeners = new ConcurrentHashMap<>();
+    private final ConcurrentMap<KfkaMessageListener<T>, ListenerRegistration<T>> msgListeners = new ConcurrentHashMap<>();
+    private final ListenerIndex<T> listenerIndex = new ListenerIndex<>();
     private final MessageIdGenerator messageIdGenerator;
+    private final AbstractKfkaConfig<?> config;
+    private final KfkaMetrics metrics;
+    private final EvictionScheduler evictionScheduler;
+    private final StoreTailer<T> tailer;
+    private final RecentMessageIds recentMessageIds;
+    private final ReplayCoalescer<T> replayCoalescer;
 
     public KfkaManagerImpl(KfkaMessageStore<T> kfkaMessageStore, MessageIdGenerator messageIdGenerator)
+    {
+        this(kfkaMessageStore, messageIdGenerator, new KfkaConfig());
+    }
+
+    public KfkaManagerImpl(KfkaMessageStore<T> kfkaMessageStore, MessageIdGenerator messageIdGenerator, AbstractKfkaConfig<?> config)
     {
         this.kfkaMessageStore = kfkaMessageStore;
         this.messageIdGenerator = messageIdGenerator;
+        this.config = config;
+        this.metrics = config.getMetrics();
+        this.replayCoalescer = config.getReplayCoalesceWindow() != null ? new ReplayCoalescer<>(kfkaMessageStore, config.getReplayCoalesceWindow(), config.getHandoffBufferSize()) : null;
+        this.evictionScheduler = new EvictionScheduler(kfkaMessageStore, config.getEvictionChunkSize(), config.getEvictionDutyCycle());
+
+        final Duration cleanInterval = config.getCleanInterval();
+        if (!config.getTtl().isZero() && cleanInterval != null && !cleanInterval.isZero())
+        {
+            evictionScheduler.start(cleanInterval);
+        }
+
+        if (config.isTail())
+        {
+            // Messages added here are dispatched right away, and must not be dispatched again when tailed
+            this.recentMessageIds = new RecentMessageIds(config.getTailRecentIds());
+            this.tailer = new StoreTailer<>(kfkaMessageStore, this::dispatch, recentMessageIds, config.getReplayBatchSize(), config.getTailMinInterval(), config.getTailMaxInterval(), config.getTailSettleWindow());
+            tailer.start();
+        }
+        else
+        {
+            this.recentMessageIds = null;
+            this.tailer = null;
+        }
     }
 
     @Override
@@ -67,23 +111,56 @@ public class KfkaManagerImpl<T extends KfkaMessage> implements KfkaManager<T>
                 msg.setMessageId(messageIdGenerator.get());
                 logger.trace("Adding {}", msg.getMessageId());
             }
+
+            // Remember the id before storing, so the tailer cannot read the message before it is known as local
+            if (recentMessageIds != null)
+            {
+                recentMessageIds.add(msg.getMessageId());
+            }
         });
 
         kfkaMessageStore.addAll(messages);
 
         // Push real-time
-        for (final Map.Entry<KfkaMessageListener<T>, KfkaPredicate> e : msgListeners.entrySet())
+        dispatch(messages);
+    }
+
+    private void dispatch(List<T> messages)
+    {
+        if (messages.size() == 1)
+        {
+            final T msg = messages.get(0);
+            listenerIndex.forEachCandidate(msg.getTopic(), msg.getType(), registration ->
+            {
+                if (registration.getPredicate().matches(msg))
+                {
+                    final long start = metrics.startTimer();
+                    registration.getDispatcher().onMessage(msg);
+                    metrics.recordDispatch(metrics.elapsed(start));
+                }
+            });
+            return;
+        }
+
+        // Hand each listener all of its matching messages at once
+        final Map<ListenerRegistration<T>, List<T>> batches = new LinkedHashMap<>();
+        for (final T msg : messages)
         {
-            messages.forEach(msg ->
+            listenerIndex.forEachCandidate(msg.getTopic(), msg.getType(), registration ->
             {
-                final KfkaMessageListener<T> l = e.getKey();
-                final KfkaPredicate p = e.getValue();
-                if (p.matches(msg))
+                if (registration.getPredicate().matches(msg))
                 {
-                    l.onMessage(msg);
+                    batches.computeIfAbsent(registration, r -> new ArrayList<>()).add(msg);
                 }
             });
         }
+
+        batches.forEach((registration, batch) ->
+        {
+            final long start = metrics.startTimer();
+            registration.getDispatcher().onMessages(batch);
+            metrics.recordDispatch(metrics.elapsed(start));
+        });
     }
 
     @Override
@@ -92,6 +169,12 @@ public class KfkaManagerImpl<T extends KfkaMessage> implements KfkaManager<T>
         return kfkaMessageStore.size();
     }
 
+    @Override
+    public long size(KfkaPredicate predicate)
+    {
+        return kfkaMessageStore.size(predicate);
+    }
+
     @Override
     public void clear()
     {
@@ -101,21 +184,151 @@ public class KfkaManagerImpl<T extends KfkaMessage> implements KfkaManager<T>
     @Override
     public void addListener(KfkaMessageListener<T> listener, KfkaPredicate kfkaPredicate)
     {
-        msgListeners.put(listener, kfkaPredicate);
+        register(listener, new ListenerRegistration<>(kfkaPredicate, createTarget(listener)));
     }
 
     @Override
     public int addListener(KfkaMessageListener<T> listener, KfkaPredicate kfkaPredicate, String lastMessageId)
     {
-        msgListeners.put(listener, kfkaPredicate);
-        return kfkaMessageStore.sendAfter(lastMessageId, kfkaPredicate, listener);
+        if (replayCoalescer != null)
+        {
+            return addListenerWithReplay(listener, kfkaPredicate, l -> replayCoalescer.sendAfter(lastMessageId, kfkaPredicate, l));
+        }
+        return addListenerWithReplay(listener, kfkaPredicate, l -> kfkaMessageStore.sendAfter(lastMessageId, kfkaPredicate, l));
     }
 
     @Override
     public int addListener(KfkaMessageListener<T> listener, KfkaPredicate kfkaPredicate, int rewind)
     {
-        msgListeners.put(listener, kfkaPredicate);
-        return sendDataWithRewind(kfkaPredicate, listener, Math.abs(rewind));
+        return addListenerWithReplay(listener, kfkaPredicate, l -> sendDataWithRewind(kfkaPredicate, l, Math.abs(rewind)));
+    }
+
+    private int addListenerWithReplay(KfkaMessageListener<T> listener, KfkaPredicate kfkaPredicate, ToIntFunction<KfkaMessageListener<T>> replay)
+    {
+        // Live messages are held back until the replay is done, so the listener gets them in order and only once. This
+        // assumes that messages written after the listener was added are replayed after those written before.
+        final KfkaMessageListener<T> target = createTarget(listener);
+        final HandoffListener<T> handoff = new HandoffListener<>(target, config.getHandoffBufferSize(), config.getReplayBatchSize());
+        register(listener, new ListenerRegistration<>(kfkaPredicate, target, handoff));
+
+        final long start = metrics.startTimer();
+        final int sent;
+        try
+        {
+            sent = handoff.replay(listener, replay, (messageId, l) -> kfkaMessageStore.sendAfter(messageId, kfkaPredicate, l));
+        }
+        catch (RuntimeException exc)
+        {
+            removeListener(listener);
+            throw exc;
+        }
+        metrics.recordReplay(sent, metrics.elapsed(start));
+        return sent;
+    }
+
+    @Override
+    public Flow.Publisher<T> publisher(KfkaPredicate kfkaPredicate, String lastMessageId)
+    {
+        if (lastMessageId == null)
+        {
+            // Start from the newest message, in case live messages overflow before any is delivered
+            return subscriber -> subscribe(subscriber, kfkaPredicate, () -> kfkaMessageStore.getLastKnownId().orElse(null), false);
+        }
+        return subscriber -> subscribe(subscriber, kfkaPredicate, () -> lastMessageId, true);
+    }
+
+    @Override
+    public Flow.Publisher<T> publisher(KfkaPredicate kfkaPredicate, int rewind)
+    {
+        final int offset = Math.abs(rewind);
+        if (offset == 0)
+        {
+            return publisher(kfkaPredicate);
+        }
+        return subscriber -> subscribe(subscriber, kfkaPredicate, () -> getMessageIdBeforeRewind(kfkaPredicate, offset), true);
+    }
+
+    /**
+     * The message id to replay after to rewind the given number of messages, or <code>null</code> if there are not
+     * more than that many messages and all should be replayed.
+     */
+    private String getMessageIdBeforeRewind(KfkaPredicate predicate, int offset)
+    {
+        final Optional<String> before = kfkaMessageStore.getMessageIdForRewind(predicate, offset + 1);
+        final Optional<String> first = kfkaMessageStore.getMessageIdForRewind(predicate, offset);
+
+        // With fewer messages than the offset, the oldest message is returned for both. Messages may also be cleared or
+        // evicted in between, leaving nothing to rewind past.
+        if (before.isEmpty() || first.isEmpty() || first.get().equals(before.get()))
+        {
+            return null;
+        }
+        return before.get();
+    }
+
+    private void subscribe(Flow.Subscriber<? super T> subscriber, KfkaPredicate kfkaPredicate, Supplier<String> cursor, boolean replay)
+    {
+        Assert.notNull(subscriber, "subscriber cannot be null");
+        final KfkaSubscription<T> subscription;
+        try
+        {
+            subscription = new KfkaSubscription<>(subscriber, kfkaMessageStore, kfkaPredicate, cursor.get(), replay,
+                    config.getHandoffBufferSize(), config.getReplayBatchSize(), this::removeListener,
+                    config.getDispatchExecutor() != null ? config.getDispatchExecutor() : ForkJoinPool.commonPool());
+        }
+        catch (RuntimeException exc)
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                }
+
+                @Override
+                public void cancel()
+                {
+                }
+            });
+            subscriber.onError(exc);
+            return;
+        }
+        register(subscription, new ListenerRegistration<>(kfkaPredicate, subscription));
+        subscriber.onSubscribe(subscription);
+    }
+
+    private void register(KfkaMessageListener<T> listener, ListenerRegistration<T> registration)
+    {
+        final ListenerRegistration<T> existing = msgListeners.put(listener, registration);
+        listenerIndex.add(registration);
+        metrics.listenerAdded(registration.getRouteKey().topic());
+        if (existing != null)
+        {
+            listenerIndex.remove(existing);
+            existing.close();
+            metrics.listenerRemoved(existing.getRouteKey().topic());
+        }
+    }
+
+    private KfkaMessageListener<T> createTarget(KfkaMessageListener<T> listener)
+    {
+        final Executor executor = config.getDispatchExecutor();
+        if (executor == null)
+        {
+            return listener;
+        }
+        return new QueuedListener<>(listener, executor, config.getDispatchQueueSize(), config.getOverflowPolicy(), disconnected ->
+                // Only remove the registration if the listener has not been re-registered in the meantime
+                msgListeners.computeIfPresent(listener, (l, registration) ->
+                {
+                    if (registration.getTarget() != disconnected)
+                    {
+                        return registration;
+                    }
+                    listenerIndex.remove(registration);
+                    metrics.listenerRemoved(registration.getRouteKey().topic());
+                    return null;
+                }));
     }
 
     private int sendDataWithRewind(final KfkaPredicate predicate, KfkaMessageListener<T> listener, int offset)
@@ -127,12 +340,28 @@ public class KfkaManagerImpl<T extends KfkaMessage> implements KfkaManager<T>
     @Override
     public void removeListener(KfkaMessageListener<T> listener)
     {
-        this.msgListeners.remove(listener);
+        final ListenerRegistration<T> registration = this.msgListeners.remove(listener);
+        if (registration != null)
+        {
+            listenerIndex.remove(registration);
+            registration.close();
+            metrics.listenerRemoved(registration.getRouteKey().topic());
+        }
     }
 
     @Override
     public void evictExpired()
     {
-        this.kfkaMessageStore.clearExpired();
+        evictionScheduler.evict();
+    }
+
+    @Override
+    public void close()
+    {
+        evictionScheduler.close();
+        if (tailer != null)
+        {
+            tailer.close();
+        }
     }
 }
@@ -20,12 +20,15 @@ package com.ethlo.kfka;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.Objects;
 
+import com.ethlo.kfka.compression.PayloadCompressor;
 import com.ethlo.kfka.util.Hex;
 
 public abstract class KfkaMessage implements Serializable, Comparable<KfkaMessage>
@@ -34,10 +37,14 @@ public abstract class KfkaMessage implements Serializable, Comparable<KfkaMessag
 
     private String topic;
     private OffsetDateTime timestamp;
-    private byte[] payload;
+    private volatile byte[] payload;
     private String type;
     private String messageId;
 
+    // Set when the payload is held compressed, until it is first read. Only one form is held at a time.
+    private transient volatile byte[] compressedPayload;
+    private transient volatile PayloadCompressor payloadCompressor;
+
     protected KfkaMessage(Builder<?> builder)
     {
         if (builder == null)
@@ -67,14 +74,95 @@ public abstract class KfkaMessage implements Serializable, Comparable<KfkaMessag
         return timestamp;
     }
 
+    /**
+     * @return The payload, decompressed on first access if it was set with {@link #setCompressedPayload}. The compressed
+     * form is dropped then, so only the decompressed payload is held from then on.
+     */
     public byte[] getPayload()
     {
-        return payload;
+        byte[] result = payload;
+        if (result == null)
+        {
+            final byte[] compressed = compressedPayload;
+            final PayloadCompressor compressor = payloadCompressor;
+            if (compressed == null || compressor == null)
+            {
+                // Not compressed, or decompressed concurrently, which sets the payload before dropping these
+                return payload;
+            }
+
+            // Concurrent first reads may both decompress, which is harmless
+            result = compressor.decompress(compressed);
+            payload = result;
+            compressedPayload = null;
+            payloadCompressor = null;
+        }
+        return result;
+    }
+
+    /**
+     * @return The length of the payload as held, without decompressing it. This is the compressed length if it was set
+     * with {@link #setCompressedPayload} and has not been read since.
+     */
+    public int getHeldPayloadLength()
+    {
+        final byte[] compressed = compressedPayload;
+        if (compressed != null)
+        {
+            return compressed.length;
+        }
+        final byte[] result = payload;
+        return result != null ? result.length : 0;
     }
 
     public void setPayload(byte[] payload)
     {
         this.payload = payload;
+        this.compressedPayload = null;
+        this.payloadCompressor = null;
+    }
+
+    /**
+     * Set the payload in compressed form. It is not decompressed until {@link #getPayload()} is called, so messages
+     * that are only filtered or forwarded never pay for decompression.
+     *
+     * @param compressedPayload The compressed payload
+     * @param payloadCompressor The compressor that produced <code>compressedPayload</code>
+     */
+    public void setCompressedPayload(byte[] compressedPayload, PayloadCompressor payloadCompressor)
+    {
+        Assert.notNull(compressedPayload, "compressedPayload may not be null");
+        Assert.notNull(payloadCompressor, "payloadCompressor may not be null");
+        this.compressedPayload = compressedPayload;
+        this.payloadCompressor = payloadCompressor;
+        this.payload = null;
+    }
+
+    /**
+     * @return The compressor of the compressed payload held, or <code>null</code> if the payload is not held compressed,
+     * including after it has been decompressed
+     */
+    public PayloadCompressor getPayloadCompressor()
+    {
+        return payloadCompressor;
+    }
+
+    /**
+     * Get the payload compressed with the given compressor. If the payload is still held compressed by that same compressor
+     * instance, the compressed bytes are returned as is, allowing pre-compressed data to be passed through. Another
+     * instance, even of the same class, may be configured differently, so the payload is compressed anew.
+     *
+     * @param compressor The compressor to compress with
+     * @return The compressed payload
+     */
+    public byte[] getCompressedPayload(PayloadCompressor compressor)
+    {
+        final byte[] compressed = compressedPayload;
+        if (compressed != null && payloadCompressor == compressor)
+        {
+            return compressed;
+        }
+        return compressor.compress(getPayload());
     }
 
     public String getType()
@@ -91,11 +179,23 @@ public abstract class KfkaMessage implements Serializable, Comparable<KfkaMessag
     @Override
     public String toString()
     {
+        // Do not decompress just for logging
+        final byte[] current = payload;
+        final byte[] compressed = compressedPayload;
+        final String payloadString;
+        if (current != null)
+        {
+            payloadString = Hex.bytesToHex(current);
+        }
+        else
+        {
+            payloadString = compressed != null ? "<" + compressed.length + " bytes compressed>" : null;
+        }
         return "KfkaMessage ["
                 + "messageId=" + messageId
                 + ", topic=" + topic
                 + ", timestamp=" + timestamp
-                + ", payload=" + Hex.bytesToHex(payload)
+                + ", payload=" + payloadString
                 + ", type=" + type;
     }
 
@@ -120,6 +220,13 @@ public abstract class KfkaMessage implements Serializable, Comparable<KfkaMessag
         return false;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        // The compressed form is transient, so make sure the payload is written
+        getPayload();
+        out.defaultWriteObject();
+    }
+
     protected void timestamp(OffsetDateTime timestamp)
     {
         this.timestamp = timestamp;
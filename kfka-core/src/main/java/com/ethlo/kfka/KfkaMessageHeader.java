@@ -0,0 +1,108 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.ethlo.kfka.util.ReflectionUtil;
+
+/**
+ * The identifying fields and queryable properties of a message, without its payload.
+ */
+public class KfkaMessageHeader
+{
+    private final String messageId;
+    private final String topic;
+    private final String type;
+    private final OffsetDateTime timestamp;
+    private final Map<String, Serializable> properties;
+
+    /**
+     * @param properties The queryable properties. Property names are matched case-insensitively, as databases may not
+     *                   preserve the case of column names.
+     */
+    public KfkaMessageHeader(String messageId, String topic, String type, OffsetDateTime timestamp, Map<String, Serializable> properties)
+    {
+        this.messageId = messageId;
+        this.topic = topic;
+        this.type = type;
+        this.timestamp = timestamp;
+        final Map<String, Serializable> props = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        props.putAll(properties);
+        this.properties = Collections.unmodifiableMap(props);
+    }
+
+    public static KfkaMessageHeader of(KfkaMessage message)
+    {
+        final Map<String, Serializable> properties = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (final String name : message.getQueryableProperties())
+        {
+            properties.put(name, (Serializable) ReflectionUtil.getPropertyValue(message, name));
+        }
+        return new KfkaMessageHeader(message.getMessageId(), message.getTopic(), message.getType(), message.getTimestamp(), properties);
+    }
+
+    public String getMessageId()
+    {
+        return messageId;
+    }
+
+    public String getTopic()
+    {
+        return topic;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public OffsetDateTime getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public Map<String, Serializable> getProperties()
+    {
+        return properties;
+    }
+
+    public Serializable getProperty(String name)
+    {
+        return properties.get(name);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "KfkaMessageHeader ["
+                + "messageId=" + messageId
+                + ", topic=" + topic
+                + ", type=" + type
+                + ", timestamp=" + timestamp
+                + ", properties=" + properties
+                + "]";
+    }
+}
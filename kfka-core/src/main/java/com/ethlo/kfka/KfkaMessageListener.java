@@ -20,7 +20,32 @@ package com.ethlo.kfka;
  * #L%
  */
 
+import java.util.List;
+
 public interface KfkaMessageListener<T>
 {
     void onMessage(T msg);
+
+    /**
+     * Called with several messages at once, in order, such as those of one <code>addAll</code> call or one chunk of a
+     * replay. Override to handle them together, for instance with a single write and flush.
+     *
+     * @param msgs The messages
+     */
+    default void onMessages(List<T> msgs)
+    {
+        for (final T msg : msgs)
+        {
+            onMessage(msg);
+        }
+    }
+
+    /**
+     * Called when the listener has been removed because it could not keep up with the message rate.
+     *
+     * @see OverflowPolicy#DISCONNECT
+     */
+    default void onDisconnected()
+    {
+    }
 }
@@ -21,29 +21,31 @@ package com.ethlo.kfka;
  */
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
 
-import com.ethlo.kfka.util.ReflectionUtil;
-
 public class KfkaPredicate implements Serializable
 {
     private final Map<String, Serializable> propertyMatch = new TreeMap<>();
     private String topic;
     private String type;
 
+    // Resolved against the last seen message class, reset on any modification
+    private transient volatile CompiledPredicate compiled;
+
     public KfkaPredicate topic(String topic)
     {
         this.topic = topic;
+        this.compiled = null;
         return this;
     }
 
     public KfkaPredicate type(String type)
     {
         this.type = type;
+        this.compiled = null;
         return this;
     }
 
@@ -60,50 +62,56 @@ public class KfkaPredicate implements Serializable
     public KfkaPredicate addPropertyMatch(String propertyName, Serializable propertyValue)
     {
         this.propertyMatch.put(propertyName, propertyValue);
+        this.compiled = null;
         return this;
     }
 
-    public boolean matches(KfkaMessage msg)
+    /**
+     * @return A copy that is not affected by later changes to this predicate
+     */
+    KfkaPredicate copy()
     {
-        final boolean basicMatch = (getType() == null || Objects.equals(msg.getType(), getType()))
-                && (getTopic() == null || Objects.equals(msg.getTopic(), getTopic()));
+        final KfkaPredicate copy = new KfkaPredicate().topic(topic).type(type);
+        copy.propertyMatch.putAll(propertyMatch);
+        return copy;
+    }
 
-        if (propertyMatch.isEmpty())
+    public boolean matches(KfkaMessage msg)
+    {
+        CompiledPredicate c = compiled;
+        if (c == null || c.getMessageType() != msg.getClass())
         {
-            return basicMatch;
+            c = CompiledPredicate.compile(this, msg.getClass());
+            compiled = c;
         }
+        return c.matches(msg);
+    }
 
-        final Collection<Field> fields = ReflectionUtil.getFields(msg.getClass()).values();
-        for (Map.Entry<String, Serializable> e : propertyMatch.entrySet())
-        {
-            final String propertyName = e.getKey();
-            final Serializable filterValue = e.getValue();
+    /**
+     * @return A read-only view of the property matches, use {@link #addPropertyMatch(String, Serializable)} to add one
+     */
+    public Map<String, Serializable> getPropertyMatch()
+    {
+        return Collections.unmodifiableMap(propertyMatch);
+    }
 
-            for (Field field : fields)
-            {
-                if (field.getName().equals(propertyName))
-                {
-                    try
-                    {
-                        final Object value = field.get(msg);
-                        if (!Objects.equals(value, filterValue))
-                        {
-                            return false;
-                        }
-                    }
-                    catch (IllegalAccessException exc)
-                    {
-                        throw new RuntimeException(exc);
-                    }
-                }
-            }
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
         }
-        return true;
-
+        if (!(o instanceof KfkaPredicate that))
+        {
+            return false;
+        }
+        return Objects.equals(topic, that.topic) && Objects.equals(type, that.type) && propertyMatch.equals(that.propertyMatch);
     }
 
-    public Map<String, Serializable> getPropertyMatch()
+    @Override
+    public int hashCode()
     {
-        return propertyMatch;
+        return Objects.hash(topic, type, propertyMatch);
     }
 }
@@ -0,0 +1,306 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.ethlo.kfka.persistence.KfkaMessageStore;
+
+/**
+ * A subscription that delivers only as many messages as the subscriber has requested. Stored messages are read a
+ * page at a time, sized by the outstanding demand. Once the store has no more, the live messages follow. They are
+ * held in a bounded buffer until requested. Should the buffer overflow, it is discarded and the subscription reads
+ * from the store again, where the messages were written before being dispatched. As with the handoff to live
+ * listeners, this relies on message ids increasing over time.
+ *
+ * <p>Messages are delivered on the thread calling {@link #request(long)}, or on the executor when live messages
+ * arrive while there is demand, but never concurrently. The thread dispatching the live messages only buffers them,
+ * so a slow subscriber does not hold up the producer.</p>
+ *
+ * @param <T> The message type
+ */
+class KfkaSubscription<T extends KfkaMessage> implements Flow.Subscription, KfkaMessageListener<T>
+{
+    private final Flow.Subscriber<? super T> subscriber;
+    private final KfkaMessageStore<T> store;
+    private final KfkaPredicate predicate;
+    private final int capacity;
+    private final int batchSize;
+    private final Consumer<KfkaMessageListener<T>> onCancel;
+    private final Executor executor;
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Queue<T> buffer = new ArrayDeque<>();
+    private long demand;
+    private boolean replaying;
+    private boolean overflowed;
+    private RuntimeException error;
+    private volatile boolean cancelled;
+
+    // Only accessed by the thread delivering messages
+    private String cursor;
+    private final RecentMessageIds delivered;
+
+    /**
+     * @param cursor    The message id to deliver messages after, or <code>null</code> to start from the oldest one
+     * @param replaying Whether to read the messages after the cursor from the store, rather than start with the
+     *                  live messages
+     * @param capacity  The maximum number of live messages to hold
+     * @param batchSize The maximum number of messages to read from the store at once
+     * @param onCancel  Called once the subscription is cancelled, to stop receiving live messages
+     * @param executor  Delivers the live messages
+     */
+    KfkaSubscription(Flow.Subscriber<? super T> subscriber, KfkaMessageStore<T> store, KfkaPredicate predicate, String cursor, boolean replaying,
+                     int capacity, int batchSize, Consumer<KfkaMessageListener<T>> onCancel, Executor executor)
+    {
+        this.subscriber = subscriber;
+        this.store = store;
+        this.predicate = predicate;
+        this.cursor = cursor;
+        this.replaying = replaying;
+        this.capacity = capacity;
+        this.delivered = new RecentMessageIds(capacity);
+        this.batchSize = batchSize;
+        this.onCancel = onCancel;
+        this.executor = executor;
+    }
+
+    @Override
+    public void request(long n)
+    {
+        synchronized (this)
+        {
+            if (n <= 0)
+            {
+                error = new IllegalArgumentException("Requested " + n + " messages, must be positive");
+            }
+            else
+            {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel()
+    {
+        if (!cancelled)
+        {
+            cancelled = true;
+            onCancel.accept(this);
+            synchronized (this)
+            {
+                buffer.clear();
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(T msg)
+    {
+        onMessages(List.of(msg));
+    }
+
+    @Override
+    public void onMessages(List<T> msgs)
+    {
+        if (cancelled)
+        {
+            return;
+        }
+
+        final boolean wanted;
+        synchronized (this)
+        {
+            for (final T msg : msgs)
+            {
+                if (buffer.size() >= capacity)
+                {
+                    // Too far behind, the discarded messages are read from the store instead
+                    buffer.clear();
+                    if (replaying)
+                    {
+                        overflowed = true;
+                    }
+                    replaying = true;
+                }
+                buffer.add(msg);
+            }
+
+            // Without demand, the next request delivers them
+            wanted = demand > 0;
+        }
+
+        if (wanted && wip.getAndIncrement() == 0)
+        {
+            try
+            {
+                executor.execute(this::drainLoop);
+            }
+            catch (RejectedExecutionException exc)
+            {
+                fail(exc);
+            }
+        }
+    }
+
+    private void drain()
+    {
+        if (wip.getAndIncrement() == 0)
+        {
+            drainLoop();
+        }
+    }
+
+    private void drainLoop()
+    {
+        int missed = 1;
+        do
+        {
+            try
+            {
+                emit();
+            }
+            catch (RuntimeException exc)
+            {
+                fail(exc);
+                return;
+            }
+            missed = wip.addAndGet(-missed);
+        }
+        while (missed != 0);
+    }
+
+    private void emit()
+    {
+        while (!cancelled)
+        {
+            final T next;
+            final int limit;
+            synchronized (this)
+            {
+                if (error != null)
+                {
+                    throw error;
+                }
+
+                if (demand == 0)
+                {
+                    return;
+                }
+
+                if (replaying)
+                {
+                    next = null;
+                    limit = (int) Math.min(demand, batchSize);
+                }
+                else
+                {
+                    next = buffer.poll();
+                    if (next == null)
+                    {
+                        return;
+                    }
+                    limit = 0;
+                }
+            }
+
+            if (next != null)
+            {
+                deliver(next);
+            }
+            else
+            {
+                readPage(limit);
+            }
+        }
+    }
+
+    private void readPage(int limit)
+    {
+        final List<T> page = new ArrayList<>(limit);
+        store.sendAfter(cursor, predicate, limit, page::add);
+
+        synchronized (this)
+        {
+            if (overflowed)
+            {
+                // Live messages written after the page was read may have been discarded, so read again
+                overflowed = false;
+            }
+            else if (page.size() < limit)
+            {
+                // Caught up, the live messages held from here on cover the rest
+                replaying = false;
+            }
+        }
+
+        for (final T msg : page)
+        {
+            if (cancelled)
+            {
+                return;
+            }
+            deliver(msg);
+        }
+    }
+
+    private void deliver(T msg)
+    {
+        // Read on from the newest message seen. A live message with a lower id may have been written too late to be
+        // read from the store, so it is delivered unless it was already.
+        final String messageId = msg.getMessageId();
+        if (cursor == null || messageId.compareTo(cursor) > 0)
+        {
+            cursor = messageId;
+        }
+        if (!delivered.add(messageId))
+        {
+            return;
+        }
+
+        synchronized (this)
+        {
+            if (demand != Long.MAX_VALUE)
+            {
+                demand--;
+            }
+        }
+        subscriber.onNext(msg);
+    }
+
+    private void fail(RuntimeException exc)
+    {
+        if (!cancelled)
+        {
+            cancel();
+            subscriber.onError(exc);
+        }
+    }
+}
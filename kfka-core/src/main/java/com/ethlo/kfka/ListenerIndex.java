@@ -0,0 +1,106 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Buckets listener registrations by the topic and type of their predicate, so that a message only needs to be
+ * checked against the registrations that could possibly match it. A predicate without a topic and/or type ends up
+ * in the corresponding wildcard bucket.
+ * <p>
+ * The routing key is captured when the listener is registered, so changing the topic or type of a predicate after
+ * registration has no effect on routing.
+ *
+ * @param <T> The message type
+ */
+class ListenerIndex<T>
+{
+    private final ConcurrentMap<RouteKey, Set<ListenerRegistration<T>>> buckets = new ConcurrentHashMap<>();
+
+    void add(ListenerRegistration<T> registration)
+    {
+        buckets.compute(registration.getRouteKey(), (key, registrations) ->
+        {
+            final Set<ListenerRegistration<T>> result = registrations != null ? registrations : ConcurrentHashMap.newKeySet();
+            result.add(registration);
+            return result;
+        });
+    }
+
+    void remove(ListenerRegistration<T> registration)
+    {
+        buckets.computeIfPresent(registration.getRouteKey(), (key, registrations) ->
+        {
+            registrations.remove(registration);
+            return registrations.isEmpty() ? null : registrations;
+        });
+    }
+
+    /**
+     * Visit every registration that may match a message with the given topic and type. The predicate of the
+     * registration must still be checked, as it may filter on custom properties.
+     *
+     * @param topic  The topic of the message
+     * @param type   The type of the message
+     * @param action The action to perform per candidate
+     */
+    void forEachCandidate(String topic, String type, Consumer<ListenerRegistration<T>> action)
+    {
+        visit(new RouteKey(topic, type), action);
+
+        // With a null topic and/or type, some of the keys coincide, and their bucket must only be visited once
+        if (type != null)
+        {
+            visit(new RouteKey(topic, null), action);
+        }
+        if (topic != null)
+        {
+            visit(new RouteKey(null, type), action);
+            if (type != null)
+            {
+                visit(RouteKey.WILDCARD, action);
+            }
+        }
+    }
+
+    private void visit(RouteKey key, Consumer<ListenerRegistration<T>> action)
+    {
+        final Set<ListenerRegistration<T>> registrations = buckets.get(key);
+        if (registrations != null)
+        {
+            registrations.forEach(action);
+        }
+    }
+
+    record RouteKey(String topic, String type)
+    {
+        static final RouteKey WILDCARD = new RouteKey(null, null);
+
+        static RouteKey of(KfkaPredicate predicate)
+        {
+            return new RouteKey(predicate.getTopic(), predicate.getType());
+        }
+    }
+}
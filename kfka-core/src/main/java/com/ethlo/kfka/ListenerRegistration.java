@@ -0,0 +1,78 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A registered listener together with its filter and the listener that actual deliveries are made to.
+ *
+ * @param <T> The message type
+ */
+class ListenerRegistration<T>
+{
+    private final KfkaPredicate predicate;
+    private final KfkaMessageListener<T> target;
+    private final KfkaMessageListener<T> dispatcher;
+    private final ListenerIndex.RouteKey routeKey;
+
+    ListenerRegistration(KfkaPredicate predicate, KfkaMessageListener<T> target)
+    {
+        this(predicate, target, target);
+    }
+
+    /**
+     * @param dispatcher The listener that live messages are dispatched to, which forwards them to the target
+     */
+    ListenerRegistration(KfkaPredicate predicate, KfkaMessageListener<T> target, KfkaMessageListener<T> dispatcher)
+    {
+        this.predicate = predicate;
+        this.target = target;
+        this.dispatcher = dispatcher;
+        this.routeKey = ListenerIndex.RouteKey.of(predicate);
+    }
+
+    KfkaPredicate getPredicate()
+    {
+        return predicate;
+    }
+
+    KfkaMessageListener<T> getTarget()
+    {
+        return target;
+    }
+
+    KfkaMessageListener<T> getDispatcher()
+    {
+        return dispatcher;
+    }
+
+    ListenerIndex.RouteKey getRouteKey()
+    {
+        return routeKey;
+    }
+
+    void close()
+    {
+        if (target instanceof QueuedListener<T> queuedListener)
+        {
+            queuedListener.close();
+        }
+    }
+}
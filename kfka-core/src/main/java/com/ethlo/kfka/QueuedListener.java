@@ -0,0 +1,203 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decouples a listener from the producer thread by means of a bounded queue that is drained on an {@link Executor}.
+ * At most one drain task per listener is in flight at any time, so messages are delivered in order.
+ *
+ * @param <T> The message type
+ */
+class QueuedListener<T> implements KfkaMessageListener<T>
+{
+    private static final Logger logger = LoggerFactory.getLogger(QueuedListener.class);
+
+    // Yield the executor thread after this many messages to be fair to other listeners
+    private static final int MAX_DRAIN_COUNT = 256;
+
+    private final KfkaMessageListener<T> delegate;
+    private final BlockingQueue<T> queue;
+    private final Executor executor;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<QueuedListener<T>> onDisconnect;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    QueuedListener(KfkaMessageListener<T> delegate, Executor executor, int capacity, OverflowPolicy overflowPolicy, Consumer<QueuedListener<T>> onDisconnect)
+    {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.onDisconnect = onDisconnect;
+    }
+
+    @Override
+    public void onMessage(T msg)
+    {
+        if (enqueue(msg))
+        {
+            schedule();
+        }
+    }
+
+    @Override
+    public void onMessages(List<T> msgs)
+    {
+        for (final T msg : msgs)
+        {
+            if (!enqueue(msg))
+            {
+                return;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * @return <code>false</code> if the listener is closed, and no more messages should be queued
+     */
+    private boolean enqueue(T msg)
+    {
+        if (closed)
+        {
+            return false;
+        }
+
+        switch (overflowPolicy)
+        {
+            case BLOCK ->
+            {
+                if (!queue.offer(msg))
+                {
+                    // Make sure the queue is being drained before waiting for room
+                    schedule();
+                    put(msg);
+                }
+            }
+            case DROP_OLDEST ->
+            {
+                while (!queue.offer(msg))
+                {
+                    if (queue.poll() != null)
+                    {
+                        logger.debug("Dispatch queue full, dropped oldest message for {}", delegate);
+                    }
+                }
+            }
+            case DISCONNECT ->
+            {
+                if (!queue.offer(msg))
+                {
+                    logger.info("Dispatch queue full, disconnecting {}", delegate);
+                    disconnect();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void put(T msg)
+    {
+        try
+        {
+            queue.put(msg);
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in dispatch queue", exc);
+        }
+    }
+
+    private void schedule()
+    {
+        if (scheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                executor.execute(this::drain);
+            }
+            catch (RejectedExecutionException exc)
+            {
+                scheduled.set(false);
+                logger.warn("Dispatch executor rejected task, disconnecting {}", delegate);
+                disconnect();
+            }
+        }
+    }
+
+    private void drain()
+    {
+        final List<T> batch = new ArrayList<>();
+        queue.drainTo(batch, MAX_DRAIN_COUNT);
+        if (!closed && !batch.isEmpty())
+        {
+            try
+            {
+                delegate.onMessages(batch);
+            }
+            catch (RuntimeException exc)
+            {
+                logger.warn("Listener {} failed to handle messages", delegate, exc);
+            }
+        }
+
+        scheduled.set(false);
+        if (!closed && !queue.isEmpty())
+        {
+            schedule();
+        }
+    }
+
+    private void disconnect()
+    {
+        close();
+        onDisconnect.accept(this);
+        delegate.onDisconnected();
+    }
+
+    void close()
+    {
+        closed = true;
+
+        // Also releases any producer blocked on a full queue
+        queue.clear();
+    }
+
+    int queued()
+    {
+        return queue.size();
+    }
+}
@@ -0,0 +1,57 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ids of the most recently seen messages, up to a fixed number, oldest forgotten first.
+ */
+class RecentMessageIds
+{
+    private final Map<String, Boolean> ids;
+
+    RecentMessageIds(int capacity)
+    {
+        this.ids = new LinkedHashMap<>(16, 0.75f, false)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return <code>true</code> if the id was not seen before
+     */
+    synchronized boolean add(String messageId)
+    {
+        return ids.put(messageId, Boolean.TRUE) == null;
+    }
+
+    synchronized boolean contains(String messageId)
+    {
+        return ids.containsKey(messageId);
+    }
+}
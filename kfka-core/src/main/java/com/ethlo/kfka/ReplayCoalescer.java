@@ -0,0 +1,342 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ethlo.kfka.persistence.KfkaMessageStore;
+
+/**
+ * Shares one store scan between concurrent replays with equal predicates, such as when many clients reconnect at
+ * once. The scan starts after the lowest message id requested within the gathering window, and each message is passed
+ * on to the replays that start before it. A replay may also join a scan in progress, as long as the scan has not yet
+ * passed its starting point. The scan then makes another pass for the messages stored in the meantime.
+ * <p>
+ * Messages are compared by id, so ids should increase over time, as with {@link TimeOrderedMessageIdGenerator}.
+ * <p>
+ * The replay that runs the scan gets the messages directly, while the others get them through a bounded hand-off and
+ * pass them to their listeners on their own threads. A replay that falls a full hand-off behind leaves the scan and
+ * reads the rest from the store by itself, so a slow listener does not hold up the others. The listener of the replay
+ * running the scan still sets its pace.
+ *
+ * @param <T> The message type
+ */
+class ReplayCoalescer<T extends KfkaMessage>
+{
+    private static final Logger logger = LoggerFactory.getLogger(ReplayCoalescer.class);
+    private static final Object END = new Object();
+
+    private final KfkaMessageStore<T> store;
+    private final long windowNanos;
+    private final int handoffSize;
+    private final Map<KfkaPredicate, Scan> scans = new HashMap<>();
+
+    /**
+     * @param handoffSize The number of messages a replay may fall behind the scan before it leaves it
+     */
+    ReplayCoalescer(KfkaMessageStore<T> store, Duration window, int handoffSize)
+    {
+        this.store = store;
+        this.windowNanos = window.toNanos();
+        this.handoffSize = handoffSize;
+    }
+
+    /**
+     * Replay the messages after the given message id, like {@link KfkaMessageStore#sendAfter(String, KfkaPredicate, KfkaMessageListener)},
+     * blocking until done.
+     */
+    int sendAfter(String messageId, KfkaPredicate predicate, KfkaMessageListener<T> listener)
+    {
+        Assert.notNull(messageId, "messageId cannot be null");
+
+        // The predicate is used as a key, so it must not change while the scan runs
+        final KfkaPredicate key = predicate.copy();
+        Scan scan = null;
+        Waiter waiter;
+        synchronized (scans)
+        {
+            final Scan existing = scans.get(key);
+            waiter = existing != null ? existing.join(messageId, listener, false) : null;
+            if (waiter == null)
+            {
+                scan = new Scan(key);
+                waiter = scan.join(messageId, listener, true);
+                scans.put(key, scan);
+            }
+        }
+
+        if (scan != null)
+        {
+            scan.run();
+        }
+        return waiter.await();
+    }
+
+    private class Scan
+    {
+        private final KfkaPredicate predicate;
+        private final List<Waiter> waiters = new ArrayList<>();
+        private boolean started;
+        private boolean joinedLate;
+        private boolean done;
+        private String position;
+
+        Scan(KfkaPredicate predicate)
+        {
+            this.predicate = predicate;
+        }
+
+        /**
+         * @return The waiter for the replay, or <code>null</code> if the scan cannot serve it
+         */
+        synchronized Waiter join(String fromId, KfkaMessageListener<T> listener, boolean direct)
+        {
+            if (done || (started && fromId.compareTo(position) < 0))
+            {
+                return null;
+            }
+
+            final Waiter waiter = new Waiter(fromId, predicate, listener, direct);
+            waiters.add(waiter);
+            joinedLate |= started;
+            return waiter;
+        }
+
+        void run()
+        {
+            RuntimeException failure = null;
+            try
+            {
+                if (windowNanos > 0)
+                {
+                    // Let other replays gather before starting
+                    LockSupport.parkNanos(windowNanos);
+                }
+
+                synchronized (this)
+                {
+                    position = waiters.stream().map(w -> w.fromId).min(String::compareTo).orElseThrow();
+                    started = true;
+                }
+
+                boolean morePasses = true;
+                while (morePasses)
+                {
+                    final String from;
+                    synchronized (this)
+                    {
+                        from = position;
+                        joinedLate = false;
+                    }
+
+                    store.sendAfter(from, predicate, this::fanOut);
+
+                    synchronized (this)
+                    {
+                        morePasses = joinedLate;
+                    }
+                }
+            }
+            catch (RuntimeException exc)
+            {
+                failure = exc;
+            }
+            finally
+            {
+                synchronized (scans)
+                {
+                    scans.remove(predicate, this);
+                }
+
+                final List<Waiter> finished;
+                synchronized (this)
+                {
+                    done = true;
+                    finished = List.copyOf(waiters);
+                }
+                logger.debug("Shared replay scan for {} served {} listeners", predicate, finished.size());
+                for (final Waiter waiter : finished)
+                {
+                    waiter.complete(failure);
+                }
+            }
+        }
+
+        private void fanOut(T msg)
+        {
+            final List<Waiter> targets;
+            synchronized (this)
+            {
+                position = msg.getMessageId();
+                targets = List.copyOf(waiters);
+            }
+
+            for (final Waiter waiter : targets)
+            {
+                if (!waiter.offer(msg))
+                {
+                    synchronized (this)
+                    {
+                        waiters.remove(waiter);
+                    }
+                }
+            }
+        }
+    }
+
+    private class Waiter
+    {
+        private final String fromId;
+        private final KfkaPredicate predicate;
+        private final KfkaMessageListener<T> listener;
+        private final boolean direct;
+        private final BlockingQueue<Object> handoff;
+        private volatile RuntimeException scanFailure;
+        private boolean left;
+        private String lastId;
+        private int sent;
+        private RuntimeException failure;
+
+        /**
+         * @param direct Whether the messages are passed on by the thread running the scan, rather than handed off
+         */
+        Waiter(String fromId, KfkaPredicate predicate, KfkaMessageListener<T> listener, boolean direct)
+        {
+            this.fromId = fromId;
+            this.predicate = predicate;
+            this.listener = listener;
+            this.direct = direct;
+
+            // One more slot than messages, so the end of the scan can always be signalled
+            this.handoff = direct ? null : new LinkedBlockingQueue<>(handoffSize + 1);
+        }
+
+        /**
+         * @return <code>false</code> if this replay has left the scan, as it fell too far behind
+         */
+        boolean offer(T msg)
+        {
+            if (msg.getMessageId().compareTo(fromId) <= 0)
+            {
+                return true;
+            }
+
+            if (direct)
+            {
+                deliver(msg);
+                return true;
+            }
+
+            if (handoff.remainingCapacity() > 1)
+            {
+                handoff.add(msg);
+                return true;
+            }
+
+            left = true;
+            handoff.add(END);
+            return false;
+        }
+
+        private void deliver(T msg)
+        {
+            if (failure != null)
+            {
+                return;
+            }
+
+            try
+            {
+                listener.onMessage(msg);
+                lastId = msg.getMessageId();
+                sent++;
+            }
+            catch (RuntimeException exc)
+            {
+                // Only this replay fails, the others carry on
+                failure = exc;
+            }
+        }
+
+        void complete(RuntimeException scanFailure)
+        {
+            this.scanFailure = scanFailure;
+            if (!direct)
+            {
+                handoff.add(END);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        int await()
+        {
+            boolean interrupted = false;
+            while (!direct)
+            {
+                try
+                {
+                    final Object next = handoff.take();
+                    if (next == END)
+                    {
+                        break;
+                    }
+                    deliver((T) next);
+                }
+                catch (InterruptedException exc)
+                {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            if (failure != null)
+            {
+                throw failure;
+            }
+
+            if (scanFailure != null)
+            {
+                throw scanFailure;
+            }
+
+            if (left)
+            {
+                // Read the rest without holding up the scan
+                sent += store.sendAfter(lastId != null ? lastId : fromId, predicate, listener);
+            }
+            return sent;
+        }
+    }
+}
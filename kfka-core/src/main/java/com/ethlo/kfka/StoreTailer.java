@@ -0,0 +1,228 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ethlo.kfka.persistence.KfkaMessageStore;
+
+/**
+ * Follows the store for messages written by other nodes, with a single query per poll regardless of the number of
+ * listeners. Polls again right away while there are new messages, and backs off exponentially while there are none.
+ * Messages are read in message id order, so ids should increase over time across all nodes, as with
+ * {@link TimeOrderedMessageIdGenerator}.
+ * <p>
+ * A message may become visible after messages with higher ids, when its transaction commits later than theirs. Each
+ * poll therefore reads again from where the tailer was a settle window ago, and skips the messages it has seen
+ * before. Messages that take longer than the settle window to become visible are missed.
+ *
+ * @param <T> The message type
+ */
+class StoreTailer<T extends KfkaMessage> implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(StoreTailer.class);
+    private static final KfkaPredicate ALL = new KfkaPredicate();
+
+    private final KfkaMessageStore<T> store;
+    private final Consumer<List<T>> dispatcher;
+    private final RecentMessageIds seen;
+    private final int batchSize;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long settleNanos;
+    private final Deque<Position> positions = new ArrayDeque<>();
+    private long delayNanos;
+    private String cursor;
+    private ScheduledExecutorService executor;
+    private volatile boolean closed;
+
+    /**
+     * @param dispatcher   Receives the new messages, in chunks of at most <code>batchSize</code>
+     * @param seen         The ids of the messages already delivered, which the dispatched ones are added to
+     * @param settleWindow The time a message may take to become visible after messages with higher ids
+     */
+    StoreTailer(KfkaMessageStore<T> store, Consumer<List<T>> dispatcher, RecentMessageIds seen, int batchSize, Duration minInterval, Duration maxInterval, Duration settleWindow)
+    {
+        this.store = store;
+        this.dispatcher = dispatcher;
+        this.seen = seen;
+        this.batchSize = batchSize;
+        this.minDelayNanos = minInterval.toNanos();
+        this.maxDelayNanos = maxInterval.toNanos();
+        this.settleNanos = settleWindow.toNanos();
+        this.delayNanos = minDelayNanos;
+        this.cursor = store.getLastKnownId().orElse(null);
+    }
+
+    synchronized void start()
+    {
+        if (executor != null)
+        {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            final Thread thread = new Thread(r, "kfka-tailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.schedule(this::pollAndReschedule, minDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void pollAndReschedule()
+    {
+        long delay;
+        try
+        {
+            delay = nextDelayNanos(poll());
+        }
+        catch (RuntimeException exc)
+        {
+            logger.warn("Polling the store for new messages failed", exc);
+            delay = delayNanos = maxDelayNanos;
+        }
+
+        try
+        {
+            if (!closed)
+            {
+                executor.schedule(this::pollAndReschedule, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+        catch (RejectedExecutionException exc)
+        {
+            logger.debug("Tailer closed while polling");
+        }
+    }
+
+    long nextDelayNanos(int received)
+    {
+        delayNanos = received > 0 ? minDelayNanos : Math.min(delayNanos * 2, maxDelayNanos);
+        return delayNanos;
+    }
+
+    /**
+     * Dispatch the messages added since the last poll, including those that became visible behind the cursor within
+     * the settle window.
+     *
+     * @return The number of new messages read
+     */
+    int poll()
+    {
+        final long now = System.nanoTime();
+        final String from = getSettledCursor(now);
+        final int[] received = new int[1];
+        final List<T> chunk = new ArrayList<>();
+        final KfkaMessageListener<T> listener = msg ->
+        {
+            if (cursor == null || msg.getMessageId().compareTo(cursor) > 0)
+            {
+                cursor = msg.getMessageId();
+            }
+
+            if (seen.add(msg.getMessageId()))
+            {
+                chunk.add(msg);
+                if (chunk.size() >= batchSize)
+                {
+                    dispatch(chunk);
+                }
+                received[0]++;
+            }
+        };
+
+        if (from != null)
+        {
+            store.sendAfter(from, ALL, listener);
+        }
+        else
+        {
+            store.sendAll(ALL, listener);
+        }
+        dispatch(chunk);
+        if (settleNanos > 0)
+        {
+            positions.addLast(new Position(now, cursor));
+        }
+
+        if (received[0] > 0)
+        {
+            logger.trace("Tailed {} messages, now at {}", received[0], cursor);
+        }
+        return received[0];
+    }
+
+    /**
+     * @return The cursor as it was a settle window ago, or the initial one if the tailer has not run for that long
+     */
+    private String getSettledCursor(long now)
+    {
+        if (settleNanos == 0)
+        {
+            return cursor;
+        }
+
+        // Keep the newest position that is older than the settle window, and those after it
+        Position settled = positions.isEmpty() ? new Position(now - settleNanos, cursor) : positions.pollFirst();
+        while (!positions.isEmpty() && now - positions.peekFirst().nanos() >= settleNanos)
+        {
+            settled = positions.pollFirst();
+        }
+        positions.addFirst(settled);
+        return settled.cursor();
+    }
+
+    private void dispatch(List<T> chunk)
+    {
+        if (!chunk.isEmpty())
+        {
+            dispatcher.accept(List.copyOf(chunk));
+            chunk.clear();
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private record Position(long nanos, String cursor)
+    {
+    }
+}
@@ -0,0 +1,85 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates fixed-length message ids that sort lexicographically in creation order, which keeps inserts into the
+ * message id index append-only.
+ * <p>
+ * Each id encodes 60 bits as {@link KfkaMessage#MESSAGE_ID_LENGTH} characters of Crockford base32, an alphabet of
+ * digits and upper-case letters in ascending ASCII order:
+ * <ul>
+ *     <li>41 bits of milliseconds since 2020-01-01T00:00:00Z (good until 2089)</li>
+ *     <li>8 bits of node id, so up to 256 nodes can generate ids without coordination</li>
+ *     <li>11 bits of sequence within the millisecond</li>
+ * </ul>
+ * The timestamp and sequence form a single counter that is advanced with a compare-and-set. If more than 2048 ids are
+ * requested within one millisecond, or the clock moves backwards, the counter runs ahead of the clock rather than
+ * waiting for it, so ids stay unique and ordered.
+ */
+public class TimeOrderedMessageIdGenerator implements MessageIdGenerator
+{
+    public static final int NODE_BITS = 8;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final int SEQUENCE_BITS = 11;
+    private static final long EPOCH = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+    private static final byte[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+    private final long nodeBits;
+    private final Clock clock;
+    private final AtomicLong counter = new AtomicLong();
+
+    public TimeOrderedMessageIdGenerator(int nodeId)
+    {
+        this(nodeId, Clock.systemUTC());
+    }
+
+    public TimeOrderedMessageIdGenerator(int nodeId, Clock clock)
+    {
+        Assert.isTrue(nodeId >= 0 && nodeId <= MAX_NODE_ID, () -> "nodeId must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    @Override
+    public String get()
+    {
+        final long now = (clock.millis() - EPOCH) << SEQUENCE_BITS;
+        final long next = counter.accumulateAndGet(now, (previous, time) -> Math.max(previous + 1, time));
+
+        final long timestamp = next >>> SEQUENCE_BITS;
+        final long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        final long value = (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | sequence;
+
+        final byte[] chars = new byte[KfkaMessage.MESSAGE_ID_LENGTH];
+        for (int i = chars.length - 1; i >= 0; i--)
+        {
+            chars[i] = ALPHABET[(int) ((value >>> (5 * (chars.length - 1 - i))) & 31)];
+        }
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+}
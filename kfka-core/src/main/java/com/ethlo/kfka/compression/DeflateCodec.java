@@ -0,0 +1,191 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate with a {@link Deflater}, {@link Inflater} and output buffer taken from a pool, so compressing only
+ * allocates the result. The pool holds at most two of each per processor. Those created beyond that under
+ * contention are ended, releasing their native memory, as soon as they have been used.
+ */
+final class DeflateCodec
+{
+    // Larger buffers are allocated per call rather than kept around
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+    private final int level;
+    private final BlockingQueue<State> pool = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    DeflateCodec(final int level)
+    {
+        this.level = level;
+    }
+
+    private State acquire()
+    {
+        final State s = pool.poll();
+        return s != null ? s : new State(level);
+    }
+
+    private void release(final State s)
+    {
+        if (!pool.offer(s))
+        {
+            s.end();
+        }
+    }
+
+    /**
+     * Compress the given region into a new array, leaving room for a header and a trailer that the caller fills in.
+     */
+    byte[] deflate(final byte[] src, final int offset, final int length, final int headerLength, final int trailerLength)
+    {
+        final State s = acquire();
+        try
+        {
+            final Deflater deflater = s.deflater;
+            deflater.reset();
+            deflater.setInput(src, offset, length);
+            deflater.finish();
+
+            byte[] buffer = s.buffer(headerLength + deflateBound(length));
+            int pos = headerLength;
+            while (!deflater.finished())
+            {
+                if (pos == buffer.length)
+                {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                pos += deflater.deflate(buffer, pos, buffer.length - pos);
+            }
+
+            final byte[] result = new byte[pos + trailerLength];
+            System.arraycopy(buffer, headerLength, result, headerLength, pos - headerLength);
+            return result;
+        }
+        finally
+        {
+            release(s);
+        }
+    }
+
+    /**
+     * Decompress the given region, which must hold exactly one deflate stream that inflates to exactly the length of
+     * <code>dest</code>.
+     */
+    void inflate(final byte[] src, final int offset, final int length, final byte[] dest)
+    {
+        final State s = acquire();
+        final Inflater inflater = s.inflater;
+        inflater.reset();
+        inflater.setInput(src, offset, length);
+        try
+        {
+            int pos = 0;
+            while (pos < dest.length)
+            {
+                final int inflated = inflater.inflate(dest, pos, dest.length - pos);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    throw malformed(null);
+                }
+                pos += inflated;
+            }
+
+            // The stream must end exactly here, with no data left over
+            if (!inflater.finished() && inflater.inflate(s.probe) != 0)
+            {
+                throw malformed(null);
+            }
+            if (!inflater.finished() || inflater.getRemaining() != 0)
+            {
+                throw malformed(null);
+            }
+        }
+        catch (DataFormatException exc)
+        {
+            throw malformed(exc);
+        }
+        finally
+        {
+            release(s);
+        }
+    }
+
+    long crc32(final byte[] data, final int offset, final int length)
+    {
+        final CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    static UncheckedIOException malformed(final Exception cause)
+    {
+        return new UncheckedIOException(new IOException("Malformed compressed payload", cause));
+    }
+
+    private static int deflateBound(final int length)
+    {
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13;
+    }
+
+    private static final class State
+    {
+        private final Deflater deflater;
+        private final Inflater inflater = new Inflater(true);
+        private final byte[] probe = new byte[1];
+        private byte[] buffer = new byte[0];
+
+        private State(final int level)
+        {
+            this.deflater = new Deflater(level, true);
+        }
+
+        private byte[] buffer(final int size)
+        {
+            if (buffer.length >= size)
+            {
+                return buffer;
+            }
+            if (size > MAX_RETAINED_BUFFER)
+            {
+                return new byte[size];
+            }
+            buffer = new byte[Math.max(size, Math.min(MAX_RETAINED_BUFFER, buffer.length * 2))];
+            return buffer;
+        }
+
+        private void end()
+        {
+            deflater.end();
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.zip.Deflater;
+
+/**
+ * Compresses to a 4-byte big-endian uncompressed length followed by raw deflate data. Compresses like
+ * {@link GzipPayloadCompressor}, without the 18 bytes of gzip header and trailer per message. The formats are not
+ * interchangeable.
+ */
+public class DeflatePayloadCompressor implements PayloadCompressor
+{
+    private static final int LENGTH_HEADER = 4;
+
+    private final DeflateCodec codec;
+
+    public DeflatePayloadCompressor()
+    {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level The compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public DeflatePayloadCompressor(int level)
+    {
+        this.codec = new DeflateCodec(level);
+    }
+
+    @Override
+    public byte[] compress(final byte[] uncompressed)
+    {
+        return compress(uncompressed, 0, uncompressed.length);
+    }
+
+    @Override
+    public byte[] compress(final byte[] uncompressed, final int offset, final int length)
+    {
+        final byte[] result = codec.deflate(uncompressed, offset, length, LENGTH_HEADER, 0);
+        ByteArrays.writeIntBigEndian(result, 0, length);
+        return result;
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed)
+    {
+        return decompress(compressed, 0, compressed.length);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed, final int offset, final int length)
+    {
+        if (length < LENGTH_HEADER)
+        {
+            throw DeflateCodec.malformed(null);
+        }
+        final int uncompressedLength = ByteArrays.readIntBigEndian(compressed, offset);
+        if (uncompressedLength < 0)
+        {
+            throw DeflateCodec.malformed(null);
+        }
+        final byte[] result = new byte[uncompressedLength];
+        codec.inflate(compressed, offset + LENGTH_HEADER, length - LENGTH_HEADER, result);
+        return result;
+    }
+}
@@ -20,58 +20,118 @@ package com.ethlo.kfka.compression;
  * #L%
  */
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
+/**
+ * Compresses to a 4-byte big-endian uncompressed length followed by a standard gzip stream. The gzip framing is
+ * written directly around a pooled {@link Deflater}, so no streams are created per message.
+ */
 public class GzipPayloadCompressor implements PayloadCompressor
 {
+    private static final int LENGTH_HEADER = 4;
+    private static final int GZIP_HEADER = 10;
+    private static final int GZIP_TRAILER = 8;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final DeflateCodec codec = new DeflateCodec(Deflater.DEFAULT_COMPRESSION);
+
     @Override
     public byte[] compress(final byte[] uncompressed)
     {
-        final int length = uncompressed.length;
-        try (final ByteArrayOutputStream bout = new ByteArrayOutputStream(length);
-             final DataOutputStream dataOutputStream = new DataOutputStream(bout);
-        )
-        {
-            dataOutputStream.writeInt(length);
-            dataOutputStream.flush();
-            dataOutputStream.close();
+        return compress(uncompressed, 0, uncompressed.length);
+    }
+
+    @Override
+    public byte[] compress(final byte[] uncompressed, final int offset, final int length)
+    {
+        final byte[] result = codec.deflate(uncompressed, offset, length, LENGTH_HEADER + GZIP_HEADER, GZIP_TRAILER);
+        ByteArrays.writeIntBigEndian(result, 0, length);
+
+        // Same header as GZIPOutputStream: no flags, no modification time, unknown OS
+        result[LENGTH_HEADER] = (byte) GZIP_MAGIC;
+        result[LENGTH_HEADER + 1] = (byte) (GZIP_MAGIC >> 8);
+        result[LENGTH_HEADER + 2] = Deflater.DEFLATED;
+        result[LENGTH_HEADER + GZIP_HEADER - 1] = (byte) 255;
 
-            final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bout);
-            gzipOutputStream.write(uncompressed);
-            gzipOutputStream.flush();
-            gzipOutputStream.close();
+        final int trailer = result.length - GZIP_TRAILER;
+        ByteArrays.writeIntLittleEndian(result, trailer, (int) codec.crc32(uncompressed, offset, length));
+        ByteArrays.writeIntLittleEndian(result, trailer + 4, length);
+        return result;
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed)
+    {
+        return decompress(compressed, 0, compressed.length);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed, final int offset, final int length)
+    {
+        final int end = offset + length;
+        if (length < LENGTH_HEADER + GZIP_HEADER + GZIP_TRAILER)
+        {
+            throw DeflateCodec.malformed(null);
+        }
 
-            return bout.toByteArray();
+        final int uncompressedLength = ByteArrays.readIntBigEndian(compressed, offset);
+        final int header = offset + LENGTH_HEADER;
+        if (uncompressedLength < 0
+                || (ByteArrays.readShortLittleEndian(compressed, header)) != GZIP_MAGIC
+                || compressed[header + 2] != Deflater.DEFLATED)
+        {
+            throw DeflateCodec.malformed(null);
         }
-        catch (IOException exc)
+        final int dataStart = skipOptionalHeaders(compressed, header, compressed[header + 3] & 0xFF, end - GZIP_TRAILER);
+
+        final byte[] result = new byte[uncompressedLength];
+        codec.inflate(compressed, dataStart, end - GZIP_TRAILER - dataStart, result);
+
+        final int trailer = end - GZIP_TRAILER;
+        if (ByteArrays.readIntLittleEndian(compressed, trailer) != (int) codec.crc32(result, 0, result.length)
+                || ByteArrays.readIntLittleEndian(compressed, trailer + 4) != uncompressedLength)
         {
-            throw new UncheckedIOException(exc);
+            throw DeflateCodec.malformed(null);
         }
+        return result;
     }
 
-    @Override
-    public byte[] decompress(final byte[] compressed)
+    private static int skipOptionalHeaders(final byte[] data, final int header, final int flags, final int limit)
     {
-        try
+        int pos = header + GZIP_HEADER;
+        if ((flags & FEXTRA) != 0)
+        {
+            pos += 2 + ByteArrays.readShortLittleEndian(data, pos);
+        }
+        if ((flags & FNAME) != 0)
         {
-            final int length = new DataInputStream(new ByteArrayInputStream(compressed)).readInt();
-            final ByteArrayInputStream bin = new ByteArrayInputStream(compressed);
-            if (bin.skip(4) != 4)
-            {
-                throw new UncheckedIOException(new IOException("Unable to skip 4 bytes"));
-            }
-            return new GZIPInputStream(bin, length).readAllBytes();
+            pos = skipZeroTerminated(data, pos, limit);
         }
-        catch (IOException exc)
+        if ((flags & FCOMMENT) != 0)
+        {
+            pos = skipZeroTerminated(data, pos, limit);
+        }
+        if ((flags & FHCRC) != 0)
+        {
+            pos += 2;
+        }
+        if (pos > limit)
+        {
+            throw DeflateCodec.malformed(null);
+        }
+        return pos;
+    }
+
+    private static int skipZeroTerminated(final byte[] data, int pos, final int limit)
+    {
+        while (pos < limit && data[pos] != 0)
         {
-            throw new UncheckedIOException(exc);
+            pos++;
         }
+        return pos + 1;
     }
 }
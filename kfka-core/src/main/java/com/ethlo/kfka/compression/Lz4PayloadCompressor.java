@@ -0,0 +1,323 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A pure-Java compressor producing the LZ4 block format, prefixed with the uncompressed length as a 4-byte big-endian
+ * integer. Matches are found with a single probe into a hash table sized to the payload, which compresses JSON
+ * payloads of a few kilobytes somewhat less than gzip, at a fraction of the CPU cost.
+ */
+public class Lz4PayloadCompressor implements PayloadCompressor
+{
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int HEADER_LENGTH = 4;
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65_535;
+    private static final int MIN_HASH_LOG = 8;
+    private static final int MAX_HASH_LOG = 14;
+    private static final int SKIP_TRIGGER = 6;
+    private static final int RUN_MASK = 15;
+
+    // A length byte adds at most 255 bytes to a match, which bounds the output per byte of input
+    private static final int MAX_EXPANSION = 255;
+
+    @Override
+    public byte[] compress(final byte[] uncompressed)
+    {
+        return compress(uncompressed, 0, uncompressed.length);
+    }
+
+    @Override
+    public byte[] compress(final byte[] uncompressed, final int offset, final int length)
+    {
+        final byte[] dest = new byte[HEADER_LENGTH + maxCompressedLength(length)];
+        ByteArrays.writeIntBigEndian(dest, 0, length);
+        final int end = compress(uncompressed, offset, length, dest, HEADER_LENGTH);
+        return Arrays.copyOf(dest, end);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed)
+    {
+        return decompress(compressed, 0, compressed.length);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed, final int offset, final int length)
+    {
+        if (length < HEADER_LENGTH)
+        {
+            throw malformed();
+        }
+        final int uncompressedLength = ByteArrays.readIntBigEndian(compressed, offset);
+        // The length header is not trusted to size the allocation beyond what the input can expand to
+        if (uncompressedLength < 0 || uncompressedLength > (long) (length - HEADER_LENGTH) * MAX_EXPANSION + MIN_MATCH + RUN_MASK)
+        {
+            throw malformed();
+        }
+        final byte[] dest = new byte[uncompressedLength];
+        decompress(compressed, offset + HEADER_LENGTH, offset + length, dest);
+        return dest;
+    }
+
+    static int maxCompressedLength(int length)
+    {
+        return length + length / 255 + 16;
+    }
+
+    private static int hashLog(int length)
+    {
+        final int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, length - 1));
+        return Math.max(MIN_HASH_LOG, Math.min(MAX_HASH_LOG, bits - 1));
+    }
+
+    private static int hash(int sequence, int hashLog)
+    {
+        return (sequence * -1640531535) >>> (32 - hashLog);
+    }
+
+    private static int compress(final byte[] src, final int srcOffset, final int length, final byte[] dest, final int destOffset)
+    {
+        final int srcEnd = srcOffset + length;
+        int dp = destOffset;
+        int anchor = srcOffset;
+
+        if (length >= MF_LIMIT + 1)
+        {
+            final int hashLog = hashLog(length);
+            // Positions default to 0, which is harmless as every candidate is verified before use
+            final int[] table = new int[1 << hashLog];
+            final int matchLimit = srcEnd - LAST_LITERALS;
+            final int mfLimit = srcEnd - MF_LIMIT;
+
+            int ip = srcOffset + 1;
+            table[hash((int) INT.get(src, srcOffset), hashLog)] = srcOffset;
+
+            outer:
+            while (true)
+            {
+                // Find a match, probing less often the longer we go without one
+                int ref;
+                int attempts = 1 << SKIP_TRIGGER;
+                while (true)
+                {
+                    if (ip > mfLimit)
+                    {
+                        break outer;
+                    }
+                    final int sequence = (int) INT.get(src, ip);
+                    final int h = hash(sequence, hashLog);
+                    ref = table[h];
+                    table[h] = ip;
+                    if (ref >= srcOffset && ip - ref <= MAX_DISTANCE && (int) INT.get(src, ref) == sequence)
+                    {
+                        break;
+                    }
+                    ip += attempts++ >>> SKIP_TRIGGER;
+                }
+
+                // Extend backwards into the pending literals
+                while (ip > anchor && ref > srcOffset && src[ip - 1] == src[ref - 1])
+                {
+                    ip--;
+                    ref--;
+                }
+
+                // Literals
+                final int literalLength = ip - anchor;
+                final int token = dp++;
+                dp = writeLength(dest, dp, literalLength);
+                System.arraycopy(src, anchor, dest, dp, literalLength);
+                dp += literalLength;
+
+                // Offset
+                final int offset = ip - ref;
+                dest[dp++] = (byte) offset;
+                dest[dp++] = (byte) (offset >>> 8);
+
+                // Match
+                final int matchLength = matchLength(src, ip + MIN_MATCH, ref + MIN_MATCH, matchLimit);
+                ip += MIN_MATCH + matchLength;
+                dp = writeLength(dest, dp, matchLength);
+                dest[token] = (byte) ((Math.min(literalLength, RUN_MASK) << 4) | Math.min(matchLength, RUN_MASK));
+                anchor = ip;
+
+                if (ip > mfLimit)
+                {
+                    break;
+                }
+                table[hash((int) INT.get(src, ip - 2), hashLog)] = ip - 2;
+            }
+        }
+
+        // Last literals
+        final int literalLength = srcEnd - anchor;
+        final int token = dp++;
+        dp = writeLength(dest, dp, literalLength);
+        dest[token] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+        System.arraycopy(src, anchor, dest, dp, literalLength);
+        return dp + literalLength;
+    }
+
+    private static int matchLength(final byte[] src, final int start, int ref, final int limit)
+    {
+        int ip = start;
+        while (ip <= limit - Long.BYTES)
+        {
+            final long diff = (long) LONG.get(src, ip) ^ (long) LONG.get(src, ref);
+            if (diff != 0)
+            {
+                return ip - start + (Long.numberOfTrailingZeros(diff) >>> 3);
+            }
+            ip += Long.BYTES;
+            ref += Long.BYTES;
+        }
+        while (ip < limit && src[ip] == src[ref])
+        {
+            ip++;
+            ref++;
+        }
+        return ip - start;
+    }
+
+    /**
+     * Write the part of a length that does not fit in the 4 bits of the token.
+     */
+    private static int writeLength(final byte[] dest, int dp, int length)
+    {
+        if (length >= RUN_MASK)
+        {
+            int remaining = length - RUN_MASK;
+            while (remaining >= 255)
+            {
+                dest[dp++] = (byte) 255;
+                remaining -= 255;
+            }
+            dest[dp++] = (byte) remaining;
+        }
+        return dp;
+    }
+
+    private static void decompress(final byte[] src, final int srcOffset, final int srcEnd, final byte[] dest)
+    {
+        int sp = srcOffset;
+        int dp = 0;
+        try
+        {
+            while (true)
+            {
+                if (sp >= srcEnd)
+                {
+                    throw malformed();
+                }
+                final int token = src[sp++] & 0xFF;
+
+                // Literals
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK)
+                {
+                    int b;
+                    do
+                    {
+                        b = src[sp++] & 0xFF;
+                        literalLength += b;
+                    }
+                    while (b == 255);
+                }
+                if (sp + literalLength > srcEnd)
+                {
+                    throw malformed();
+                }
+                System.arraycopy(src, sp, dest, dp, literalLength);
+                sp += literalLength;
+                dp += literalLength;
+
+                if (sp == srcEnd)
+                {
+                    break;
+                }
+
+                // Match
+                if (sp + 2 > srcEnd)
+                {
+                    throw malformed();
+                }
+                final int offset = (src[sp++] & 0xFF) | ((src[sp++] & 0xFF) << 8);
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK)
+                {
+                    int b;
+                    do
+                    {
+                        b = src[sp++] & 0xFF;
+                        matchLength += b;
+                    }
+                    while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                final int ref = dp - offset;
+                if (offset == 0 || ref < 0 || dp + matchLength > dest.length)
+                {
+                    throw malformed();
+                }
+                if (offset >= matchLength)
+                {
+                    System.arraycopy(dest, ref, dest, dp, matchLength);
+                    dp += matchLength;
+                }
+                else
+                {
+                    // Overlapping copy, repeating the last offset bytes
+                    for (int i = 0; i < matchLength; i++)
+                    {
+                        dest[dp++] = dest[ref + i];
+                    }
+                }
+            }
+        }
+        catch (IndexOutOfBoundsException exc)
+        {
+            throw malformed();
+        }
+
+        if (dp != dest.length)
+        {
+            throw malformed();
+        }
+    }
+
+    private static UncheckedIOException malformed()
+    {
+        return new UncheckedIOException(new IOException("Malformed LZ4 compressed payload"));
+    }
+}
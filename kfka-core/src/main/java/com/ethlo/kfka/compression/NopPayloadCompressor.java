@@ -20,6 +20,8 @@ package com.ethlo.kfka.compression;
  * #L%
  */
 
+import java.util.Arrays;
+
 public class NopPayloadCompressor implements PayloadCompressor
 {
     @Override
@@ -33,4 +35,16 @@ public class NopPayloadCompressor implements PayloadCompressor
     {
         return compressed;
     }
+
+    @Override
+    public byte[] compress(final byte[] uncompressed, final int offset, final int length)
+    {
+        return Arrays.copyOfRange(uncompressed, offset, offset + length);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed, final int offset, final int length)
+    {
+        return Arrays.copyOfRange(compressed, offset, offset + length);
+    }
 }
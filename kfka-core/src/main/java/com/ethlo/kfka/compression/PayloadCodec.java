@@ -0,0 +1,79 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The codecs understood by {@link TaggedPayloadCompressor}, each identified by the first byte of a stored payload.
+ */
+public enum PayloadCodec
+{
+    /**
+     * The format of {@link GzipPayloadCompressor}. Its tag is the high byte of the length prefix, which is zero for
+     * payloads below 16 MB, so payloads written by {@link GzipPayloadCompressor} can be read without migration. Larger
+     * ones are recognised by their gzip header and trailer instead.
+     */
+    GZIP(0x00, new GzipPayloadCompressor()),
+
+    /**
+     * Stored as is.
+     */
+    NONE(0x01, new NopPayloadCompressor()),
+
+    /**
+     * The format of {@link DeflatePayloadCompressor}.
+     */
+    DEFLATE(0x02, new DeflatePayloadCompressor()),
+
+    /**
+     * The format of {@link Lz4PayloadCompressor}.
+     */
+    LZ4(0x03, new Lz4PayloadCompressor());
+
+    private static final PayloadCodec[] BY_TAG = {GZIP, NONE, DEFLATE, LZ4};
+
+    private final byte tag;
+    private final PayloadCompressor compressor;
+
+    PayloadCodec(int tag, PayloadCompressor compressor)
+    {
+        this.tag = (byte) tag;
+        this.compressor = compressor;
+    }
+
+    public byte getTag()
+    {
+        return tag;
+    }
+
+    PayloadCompressor getCompressor()
+    {
+        return compressor;
+    }
+
+    public static PayloadCodec fromTag(byte tag)
+    {
+        if (tag < 0 || tag >= BY_TAG.length)
+        {
+            throw DeflateCodec.malformed(new IllegalArgumentException("Unknown payload codec tag: " + tag));
+        }
+        return BY_TAG[tag];
+    }
+}
@@ -20,9 +20,86 @@ package com.ethlo.kfka.compression;
  * #L%
  */
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public interface PayloadCompressor
 {
     byte[] compress(final byte[] uncompressed);
 
     byte[] decompress(final byte[] compressed);
+
+    /**
+     * Compress a region of an array, without copying it first where the implementation supports it.
+     *
+     * @param uncompressed The array holding the data
+     * @param offset       The start of the data
+     * @param length       The length of the data
+     * @return The compressed data
+     */
+    default byte[] compress(final byte[] uncompressed, final int offset, final int length)
+    {
+        return compress(Arrays.copyOfRange(uncompressed, offset, offset + length));
+    }
+
+    /**
+     * Decompress a region of an array, without copying it first where the implementation supports it.
+     *
+     * @param compressed The array holding the data
+     * @param offset     The start of the data
+     * @param length     The length of the data
+     * @return The decompressed data
+     */
+    default byte[] decompress(final byte[] compressed, final int offset, final int length)
+    {
+        return decompress(Arrays.copyOfRange(compressed, offset, offset + length));
+    }
+
+    /**
+     * Compress the remaining bytes of the buffer, advancing its position to the limit.
+     *
+     * @param uncompressed The data
+     * @return A buffer holding the compressed data
+     */
+    default ByteBuffer compress(final ByteBuffer uncompressed)
+    {
+        final int length = uncompressed.remaining();
+        final byte[] result;
+        if (uncompressed.hasArray())
+        {
+            result = compress(uncompressed.array(), uncompressed.arrayOffset() + uncompressed.position(), length);
+            uncompressed.position(uncompressed.limit());
+        }
+        else
+        {
+            final byte[] copy = new byte[length];
+            uncompressed.get(copy);
+            result = compress(copy);
+        }
+        return ByteBuffer.wrap(result);
+    }
+
+    /**
+     * Decompress the remaining bytes of the buffer, advancing its position to the limit.
+     *
+     * @param compressed The data
+     * @return A buffer holding the decompressed data
+     */
+    default ByteBuffer decompress(final ByteBuffer compressed)
+    {
+        final int length = compressed.remaining();
+        final byte[] result;
+        if (compressed.hasArray())
+        {
+            result = decompress(compressed.array(), compressed.arrayOffset() + compressed.position(), length);
+            compressed.position(compressed.limit());
+        }
+        else
+        {
+            final byte[] copy = new byte[length];
+            compressed.get(copy);
+            result = decompress(copy);
+        }
+        return ByteBuffer.wrap(result);
+    }
 }
@@ -0,0 +1,173 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import com.ethlo.kfka.Assert;
+
+/**
+ * Prefixes every payload with a one-byte {@link PayloadCodec} tag, so payloads written with different codecs can live
+ * side by side and the codec can be changed at any time. Payloads are stored uncompressed when they are too small to
+ * benefit, or when compression does not reduce their size enough, as is typical for images or already compressed
+ * data. Such payloads cost neither compression on write nor decompression on replay.
+ * <p>
+ * Payloads written by {@link GzipPayloadCompressor} are read as is. From 16 MB on, their length prefix no longer starts
+ * with the gzip tag, and they are recognised by their gzip header and trailer instead.
+ * <p>
+ * Payloads written by {@link NopPayloadCompressor}, the default, are raw bytes that cannot be told apart from tagged
+ * ones, so they are misread or rejected. Before switching such a table to this compressor, prefix every stored payload
+ * with the {@link PayloadCodec#NONE} tag.
+ */
+public class TaggedPayloadCompressor implements PayloadCompressor
+{
+    public static final int DEFAULT_MIN_SIZE = 128;
+    public static final double DEFAULT_MAX_RATIO = 0.9;
+
+    // Large payloads are probed with a prefix of this size before compressing all of it
+    private static final int SAMPLE_SIZE = 4096;
+    private static final int GZIP_MAX_LENGTH = (1 << 24) - 1;
+    private static final int LEGACY_GZIP_MIN_LENGTH = 22;
+
+    private final PayloadCodec codec;
+    private final int minSize;
+    private final double maxRatio;
+
+    public TaggedPayloadCompressor(PayloadCodec codec)
+    {
+        this(codec, DEFAULT_MIN_SIZE, DEFAULT_MAX_RATIO);
+    }
+
+    /**
+     * @param codec    The codec to compress with
+     * @param minSize  Payloads smaller than this are stored uncompressed
+     * @param maxRatio Payloads that do not compress to at most this fraction of their size are stored uncompressed
+     */
+    public TaggedPayloadCompressor(PayloadCodec codec, int minSize, double maxRatio)
+    {
+        Assert.notNull(codec, "codec may not be null");
+        Assert.isTrue(minSize >= 0, () -> "minSize may not be negative");
+        Assert.isTrue(maxRatio > 0 && maxRatio <= 1, () -> "maxRatio must be greater than 0 and at most 1");
+        this.codec = codec;
+        this.minSize = minSize;
+        this.maxRatio = maxRatio;
+    }
+
+    @Override
+    public byte[] compress(final byte[] uncompressed)
+    {
+        return compress(uncompressed, 0, uncompressed.length);
+    }
+
+    @Override
+    public byte[] compress(final byte[] uncompressed, final int offset, final int length)
+    {
+        if (codec == PayloadCodec.NONE || length < minSize || !compressible(uncompressed, offset, length))
+        {
+            return stored(uncompressed, offset, length);
+        }
+
+        // The gzip tag is the high byte of its length prefix, which is only zero below 16 MB
+        final PayloadCodec effective = codec == PayloadCodec.GZIP && length > GZIP_MAX_LENGTH ? PayloadCodec.DEFLATE : codec;
+        final byte[] compressed = effective.getCompressor().compress(uncompressed, offset, length);
+        final int taggedLength = effective == PayloadCodec.GZIP ? compressed.length : compressed.length + 1;
+        if (taggedLength > length * maxRatio)
+        {
+            return stored(uncompressed, offset, length);
+        }
+
+        if (effective == PayloadCodec.GZIP)
+        {
+            return compressed;
+        }
+        final byte[] result = new byte[taggedLength];
+        result[0] = effective.getTag();
+        System.arraycopy(compressed, 0, result, 1, compressed.length);
+        return result;
+    }
+
+    private boolean compressible(final byte[] data, final int offset, final int length)
+    {
+        if (length <= SAMPLE_SIZE * 2)
+        {
+            return true;
+        }
+        final byte[] sample = codec.getCompressor().compress(data, offset, SAMPLE_SIZE);
+        return sample.length <= SAMPLE_SIZE * maxRatio;
+    }
+
+    private static byte[] stored(final byte[] data, final int offset, final int length)
+    {
+        final byte[] result = new byte[length + 1];
+        result[0] = PayloadCodec.NONE.getTag();
+        System.arraycopy(data, offset, result, 1, length);
+        return result;
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed)
+    {
+        return decompress(compressed, 0, compressed.length);
+    }
+
+    @Override
+    public byte[] decompress(final byte[] compressed, final int offset, final int length)
+    {
+        if (length == 0)
+        {
+            throw DeflateCodec.malformed(null);
+        }
+
+        // A payload matching the gzip signature fails on its checksum if corrupt, rather than being read by its tag
+        final PayloadCodec payloadCodec = isLegacyGzip(compressed, offset, length) ? PayloadCodec.GZIP : PayloadCodec.fromTag(compressed[offset]);
+        return switch (payloadCodec)
+        {
+            case NONE -> Arrays.copyOfRange(compressed, offset + 1, offset + length);
+            case GZIP -> payloadCodec.getCompressor().decompress(compressed, offset, length);
+            default -> payloadCodec.getCompressor().decompress(compressed, offset + 1, length - 1);
+        };
+    }
+
+    /**
+     * Whether the payload looks like one of 16 MB or more written by {@link GzipPayloadCompressor}: a gzip header after
+     * the length prefix, and a gzip trailer repeating that length.
+     */
+    private static boolean isLegacyGzip(final byte[] data, final int offset, final int length)
+    {
+        return data[offset] != PayloadCodec.GZIP.getTag()
+                && length >= LEGACY_GZIP_MIN_LENGTH
+                && data[offset + 4] == (byte) 0x1f
+                && data[offset + 5] == (byte) 0x8b
+                && data[offset + 6] == Deflater.DEFLATED
+                && ByteArrays.readIntLittleEndian(data, offset + length - 4) == ByteArrays.readIntBigEndian(data, offset);
+    }
+
+    /**
+     * @param compressed A payload written by this compressor
+     * @return The codec the payload was written with
+     */
+    public static PayloadCodec getCodec(final byte[] compressed)
+    {
+        Assert.isTrue(compressed.length > 0, () -> "Empty payload");
+        return isLegacyGzip(compressed, 0, compressed.length) ? PayloadCodec.GZIP : PayloadCodec.fromTag(compressed[0]);
+    }
+}
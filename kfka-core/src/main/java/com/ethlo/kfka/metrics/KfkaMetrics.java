@@ -0,0 +1,119 @@
+package com.ethlo.kfka.metrics;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Receives measurements from the hot paths of kfka. All methods default to doing nothing, so an implementation only
+ * needs to override what it is interested in.
+ * <p>
+ * {@link com.ethlo.kfka.KfkaManagerImpl} reports replays, dispatches and listener registrations, while the JDBC
+ * message store reports inserts and evictions. Durations are in nanoseconds, measured from {@link #startTimer()}.
+ * <p>
+ * Implementations are called concurrently from producer and listener threads and must be thread-safe and cheap.
+ */
+public interface KfkaMetrics
+{
+    /**
+     * Does not measure anything, and does not read the clock.
+     */
+    KfkaMetrics NOOP = new KfkaMetrics()
+    {
+        @Override
+        public long startTimer()
+        {
+            return 0;
+        }
+    };
+
+    /**
+     * @return The start time to pass to {@link #elapsed(long)}
+     */
+    default long startTimer()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * @param startTime The value returned from {@link #startTimer()}
+     * @return The nanoseconds elapsed since <code>startTime</code>
+     */
+    default long elapsed(long startTime)
+    {
+        return startTime == 0 ? 0 : System.nanoTime() - startTime;
+    }
+
+    /**
+     * A batch of messages was written to the store.
+     *
+     * @param rows  The number of messages in the batch
+     * @param nanos The time taken to write the batch
+     */
+    default void recordInsert(int rows, long nanos)
+    {
+    }
+
+    /**
+     * Stored messages were replayed to a newly registered listener.
+     *
+     * @param rows  The number of messages delivered
+     * @param nanos The time taken to locate and deliver the messages
+     */
+    default void recordReplay(int rows, long nanos)
+    {
+    }
+
+    /**
+     * A real-time message was handed to a listener.
+     *
+     * @param nanos The time taken by the listener, or to enqueue the message when dispatching asynchronously
+     */
+    default void recordDispatch(long nanos)
+    {
+    }
+
+    /**
+     * A listener was registered.
+     *
+     * @param topic The topic the listener is filtering on, or <code>null</code> for all topics
+     */
+    default void listenerAdded(String topic)
+    {
+    }
+
+    /**
+     * A listener was removed or disconnected.
+     *
+     * @param topic The topic the listener was filtering on, or <code>null</code> for all topics
+     */
+    default void listenerRemoved(String topic)
+    {
+    }
+
+    /**
+     * Expired messages were evicted from the store.
+     *
+     * @param rows  The number of messages evicted, or -1 if not known
+     * @param nanos The time taken to evict the messages
+     */
+    default void recordEviction(long rows, long nanos)
+    {
+    }
+}
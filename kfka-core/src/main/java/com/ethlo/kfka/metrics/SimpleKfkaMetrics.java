@@ -0,0 +1,157 @@
+package com.ethlo.kfka.metrics;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps counters and {@link LatencyHistogram}s in memory, for exposing through whatever monitoring system is in use.
+ */
+public class SimpleKfkaMetrics implements KfkaMetrics
+{
+    /**
+     * The key used in {@link #getListenerCounts()} for listeners not filtering on a topic.
+     */
+    public static final String ALL_TOPICS = "*";
+
+    private final LatencyHistogram insertLatency = new LatencyHistogram();
+    private final LatencyHistogram replayLatency = new LatencyHistogram();
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+    private final LatencyHistogram evictionLatency = new LatencyHistogram();
+    private final LongAdder insertedRows = new LongAdder();
+    private final LongAdder replayedRows = new LongAdder();
+    private final LongAdder evictedRows = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordInsert(int rows, long nanos)
+    {
+        insertedRows.add(rows);
+        insertLatency.record(nanos);
+    }
+
+    @Override
+    public void recordReplay(int rows, long nanos)
+    {
+        replayedRows.add(rows);
+        replayLatency.record(nanos);
+    }
+
+    @Override
+    public void recordDispatch(long nanos)
+    {
+        dispatchLatency.record(nanos);
+    }
+
+    @Override
+    public void listenerAdded(String topic)
+    {
+        listeners.computeIfAbsent(topic != null ? topic : ALL_TOPICS, t -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void listenerRemoved(String topic)
+    {
+        final LongAdder count = listeners.get(topic != null ? topic : ALL_TOPICS);
+        if (count != null)
+        {
+            count.decrement();
+        }
+    }
+
+    @Override
+    public void recordEviction(long rows, long nanos)
+    {
+        if (rows > 0)
+        {
+            evictedRows.add(rows);
+        }
+        evictionLatency.record(nanos);
+    }
+
+    public LatencyHistogram getInsertLatency()
+    {
+        return insertLatency;
+    }
+
+    public LatencyHistogram getReplayLatency()
+    {
+        return replayLatency;
+    }
+
+    public LatencyHistogram getDispatchLatency()
+    {
+        return dispatchLatency;
+    }
+
+    public LatencyHistogram getEvictionLatency()
+    {
+        return evictionLatency;
+    }
+
+    public long getInsertedRows()
+    {
+        return insertedRows.sum();
+    }
+
+    public long getReplayedRows()
+    {
+        return replayedRows.sum();
+    }
+
+    public long getEvictedRows()
+    {
+        return evictedRows.sum();
+    }
+
+    /**
+     * @return The number of registered listeners per topic, omitting topics without listeners
+     */
+    public Map<String, Long> getListenerCounts()
+    {
+        final Map<String, Long> result = new TreeMap<>();
+        listeners.forEach((topic, count) ->
+        {
+            final long value = count.sum();
+            if (value > 0)
+            {
+                result.put(topic, value);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SimpleKfkaMetrics{"
+                + "inserts=[" + insertLatency + "], insertedRows=" + getInsertedRows()
+                + ", replays=[" + replayLatency + "], replayedRows=" + getReplayedRows()
+                + ", dispatches=[" + dispatchLatency + "]"
+                + ", evictions=[" + evictionLatency + "], evictedRows=" + getEvictedRows()
+                + ", listeners=" + getListenerCounts()
+                + "}";
+    }
+}
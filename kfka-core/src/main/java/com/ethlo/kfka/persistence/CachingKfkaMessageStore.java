@@ -0,0 +1,399 @@
+package com.ethlo.kfka.persistence;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.ethlo.kfka.Assert;
+import com.ethlo.kfka.KfkaMessage;
+import com.ethlo.kfka.KfkaMessageHeader;
+import com.ethlo.kfka.KfkaMessageListener;
+import com.ethlo.kfka.KfkaPredicate;
+
+/**
+ * Keeps the most recently added messages in memory in front of another store, so that listeners catching up from a
+ * recent message id are served without a query. The cached messages are always the newest ones in the store: a replay
+ * is served from memory when it starts at or after the newest message evicted from the cache, and by the backing store
+ * otherwise. The cache is bounded by both the number of messages and their approximate size in bytes.
+ * <p>
+ * As the cache is fed by {@link #addAll(List)}, all messages must be added through this store. Do not use it when
+ * other nodes add messages to the same backing store. Concurrent writes reach the backing store concurrently, but are
+ * cached in the order they started. While a write has been stored but an earlier one has not completed yet, replays
+ * that could include its messages are served by the backing store.
+ *
+ * @param <T> The message type
+ */
+public class CachingKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageStore<T>
+{
+    // Rough per-message overhead of the message object, its strings and the map entry
+    private static final int MESSAGE_OVERHEAD_BYTES = 256;
+
+    private final KfkaMessageStore<T> delegate;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final Duration ttl;
+
+    private final NavigableMap<String, T> messages = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong nextWrite = new AtomicLong();
+    private long bytes;
+
+    // Writes stored but waiting for earlier ones to complete before being cached, by the order they started in
+    private final Map<Long, List<T>> uncached = new HashMap<>();
+    private long nextToCache;
+
+    // The lowest message id of those stored but not yet cached, if any
+    private String uncachedFrom;
+
+    // Messages with ids after this are all cached, null meaning all messages in the store are
+    private String evictedUpTo;
+
+    /**
+     * @param delegate    The backing store
+     * @param maxMessages The maximum number of messages to cache
+     * @param maxBytes    The maximum approximate size of the cached messages
+     * @param ttl         The time to live for messages, as configured for the backing store. Use 0 for forever.
+     */
+    public CachingKfkaMessageStore(KfkaMessageStore<T> delegate, int maxMessages, long maxBytes, Duration ttl)
+    {
+        Assert.notNull(delegate, "delegate may not be null");
+        Assert.isTrue(maxMessages > 0, () -> "maxMessages must be positive");
+        Assert.isTrue(maxBytes > 0, () -> "maxBytes must be positive");
+        Assert.notNull(ttl, "ttl may not be null");
+        this.delegate = delegate;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+
+        // Whatever is already stored is not cached
+        this.evictedUpTo = delegate.getLastKnownId().orElse(null);
+    }
+
+    @Override
+    public void addAll(List<T> values)
+    {
+        // The backing store is written to concurrently, only the caching follows the order the writes started in
+        final long write = nextWrite.getAndIncrement();
+        List<T> stored = List.of();
+        try
+        {
+            delegate.addAll(values);
+            stored = values;
+        }
+        finally
+        {
+            cache(write, stored);
+        }
+    }
+
+    private void cache(long write, List<T> values)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            // Otherwise a later write could be cached first, and readers of the cache would miss the earlier one
+            uncached.put(write, values);
+            List<T> next;
+            while ((next = uncached.remove(nextToCache)) != null)
+            {
+                nextToCache++;
+                for (final T value : next)
+                {
+                    // A message older than the cached window would leave a gap in it
+                    if (evictedUpTo == null || value.getMessageId().compareTo(evictedUpTo) > 0)
+                    {
+                        final T previous = messages.put(value.getMessageId(), value);
+                        bytes += sizeOf(value) - (previous != null ? sizeOf(previous) : 0);
+                    }
+                }
+            }
+
+            uncachedFrom = null;
+            for (final List<T> waiting : uncached.values())
+            {
+                for (final T value : waiting)
+                {
+                    if (uncachedFrom == null || value.getMessageId().compareTo(uncachedFrom) < 0)
+                    {
+                        uncachedFrom = value.getMessageId();
+                    }
+                }
+            }
+
+            while (messages.size() > maxMessages || bytes > maxBytes)
+            {
+                final Map.Entry<String, T> eldest = messages.pollFirstEntry();
+                bytes -= sizeOf(eldest.getValue());
+                evictedUpTo = eldest.getKey();
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long sizeOf(KfkaMessage message)
+    {
+        // Reading the payload could decompress it
+        return MESSAGE_OVERHEAD_BYTES + message.getHeldPayloadLength();
+    }
+
+    private long getTtlTs()
+    {
+        return ttl.isZero() ? Long.MIN_VALUE : System.currentTimeMillis() - ttl.toMillis();
+    }
+
+    /**
+     * The cached messages matching the predicate from the given message id on, or <code>null</code> if some of them
+     * may not be cached.
+     */
+    private List<T> fromCache(String messageId, boolean including, KfkaPredicate predicate)
+    {
+        final long ttlTs = getTtlTs();
+        lock.readLock().lock();
+        try
+        {
+            if (evictedUpTo != null && (messageId == null || messageId.compareTo(evictedUpTo) < 0 || (including && messageId.equals(evictedUpTo))))
+            {
+                return null;
+            }
+
+            // Stored messages that are not cached yet would be missing
+            if (uncachedFrom != null && (messageId == null || uncachedFrom.compareTo(messageId) > 0 || (including && uncachedFrom.equals(messageId))))
+            {
+                return null;
+            }
+
+            final Iterable<T> candidates = messageId != null ? messages.tailMap(messageId, including).values() : messages.values();
+            final List<T> result = new ArrayList<>();
+            for (final T message : candidates)
+            {
+                if (message.getTimestamp().toInstant().toEpochMilli() > ttlTs && predicate.matches(message))
+                {
+                    result.add(message);
+                }
+            }
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int send(List<T> cached, KfkaMessageListener<T> l)
+    {
+        for (final T message : cached)
+        {
+            l.onMessage(message);
+        }
+        return cached.size();
+    }
+
+    @Override
+    public int sendAfter(String messageId, KfkaPredicate predicate, KfkaMessageListener<T> l)
+    {
+        Assert.notNull(messageId, "messageId cannot be null");
+        final List<T> cached = fromCache(messageId, false, predicate);
+        return cached != null ? send(cached, l) : delegate.sendAfter(messageId, predicate, l);
+    }
+
+    @Override
+    public int sendAfter(String messageId, KfkaPredicate predicate, int limit, KfkaMessageListener<T> l)
+    {
+        final List<T> cached = fromCache(messageId, false, predicate);
+        if (cached == null)
+        {
+            return delegate.sendAfter(messageId, predicate, limit, l);
+        }
+        return send(cached.size() > limit ? cached.subList(0, limit) : cached, l);
+    }
+
+    @Override
+    public int sendIncluding(String messageId, KfkaPredicate predicate, KfkaMessageListener<T> l)
+    {
+        Assert.notNull(messageId, "messageId cannot be null");
+        final List<T> cached = fromCache(messageId, true, predicate);
+        return cached != null ? send(cached, l) : delegate.sendIncluding(messageId, predicate, l);
+    }
+
+    @Override
+    public void sendAll(KfkaPredicate predicate, KfkaMessageListener<T> l)
+    {
+        final List<T> cached = fromCache(null, false, predicate);
+        if (cached != null)
+        {
+            send(cached, l);
+        }
+        else
+        {
+            delegate.sendAll(predicate, l);
+        }
+    }
+
+    @Override
+    public int sendHeadersAfter(String messageId, KfkaPredicate predicate, Consumer<KfkaMessageHeader> consumer)
+    {
+        final List<T> cached = fromCache(messageId, false, predicate);
+        if (cached == null)
+        {
+            return delegate.sendHeadersAfter(messageId, predicate, consumer);
+        }
+
+        for (final T message : cached)
+        {
+            consumer.accept(KfkaMessageHeader.of(message));
+        }
+        return cached.size();
+    }
+
+    @Override
+    public Optional<String> getMessageIdForRewind(KfkaPredicate predicate, int offset)
+    {
+        if (offset <= 0)
+        {
+            return Optional.empty();
+        }
+
+        final long ttlTs = getTtlTs();
+        lock.readLock().lock();
+        try
+        {
+            // Unless the newest stored messages are not all cached yet
+            if (uncachedFrom == null)
+            {
+                String oldest = null;
+                int count = 0;
+                for (final T message : messages.descendingMap().values())
+                {
+                    if (message.getTimestamp().toInstant().toEpochMilli() > ttlTs && predicate.matches(message))
+                    {
+                        oldest = message.getMessageId();
+                        if (++count == offset)
+                        {
+                            return Optional.of(oldest);
+                        }
+                    }
+                }
+
+                // Fewer matches than requested, which is the answer only if the cache holds all messages
+                if (evictedUpTo == null)
+                {
+                    return Optional.ofNullable(oldest);
+                }
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        return delegate.getMessageIdForRewind(predicate, offset);
+    }
+
+    @Override
+    public long size()
+    {
+        return delegate.size();
+    }
+
+    @Override
+    public long size(KfkaPredicate predicate)
+    {
+        return delegate.size(predicate);
+    }
+
+    @Override
+    public void clear()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            delegate.clear();
+            messages.clear();
+            bytes = 0;
+            evictedUpTo = null;
+
+            // Writes completed before the clear were cleared with it
+            uncached.replaceAll((write, values) -> List.of());
+            uncachedFrom = null;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearExpired()
+    {
+        delegate.clearExpired();
+        removeExpired();
+    }
+
+    @Override
+    public long clearExpired(int maxRows)
+    {
+        final long deleted = delegate.clearExpired(maxRows);
+        removeExpired();
+        return deleted;
+    }
+
+    private void removeExpired()
+    {
+        final long ttlTs = getTtlTs();
+        lock.writeLock().lock();
+        try
+        {
+            // Expired messages are skipped when reading anyway, this only frees the memory
+            messages.values().removeIf(message ->
+            {
+                final boolean expired = message.getTimestamp().toInstant().toEpochMilli() <= ttlTs;
+                if (expired)
+                {
+                    bytes -= sizeOf(message);
+                }
+                return expired;
+            });
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<String> getLastKnownId()
+    {
+        return delegate.getLastKnownId();
+    }
+}
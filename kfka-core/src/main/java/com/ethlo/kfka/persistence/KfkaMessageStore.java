@@ -20,29 +20,122 @@ package com.ethlo.kfka.persistence;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.ethlo.kfka.KfkaMessage;
+import com.ethlo.kfka.KfkaMessageHeader;
 import com.ethlo.kfka.KfkaMessageListener;
 import com.ethlo.kfka.KfkaPredicate;
 
-public interface KfkaMessageStore<T>
+public interface KfkaMessageStore<T extends KfkaMessage>
 {
     void addAll(List<T> values);
 
     long size();
 
+    /**
+     * The number of messages matching the predicate. Stores that can count without reading the messages should
+     * override this.
+     *
+     * @param predicate The filter to apply
+     * @return The number of matching messages
+     */
+    default long size(KfkaPredicate predicate)
+    {
+        final long[] count = new long[1];
+        sendHeadersAfter(null, predicate, header -> count[0]++);
+        return count[0];
+    }
+
     void clear();
 
     int sendAfter(String messageId, final KfkaPredicate predicate, KfkaMessageListener<T> l);
 
+    /**
+     * Replay at most <code>limit</code> of the matching messages, in message id order, so a consumer can pull them
+     * a page at a time. This default still reads all messages after the given one, and stores that can stop reading
+     * at the limit should override it.
+     *
+     * @param messageId The message id to replay after, or <code>null</code> to replay from the oldest message
+     * @param predicate The filter to apply
+     * @param limit     The maximum number of messages to send
+     * @param l         The listener to send the messages to
+     * @return The number of messages sent. Less than <code>limit</code> means there are no more messages for now.
+     */
+    default int sendAfter(String messageId, KfkaPredicate predicate, int limit, KfkaMessageListener<T> l)
+    {
+        final List<T> page = new ArrayList<>();
+        final KfkaMessageListener<T> collector = msg ->
+        {
+            if (page.size() < limit)
+            {
+                page.add(msg);
+            }
+        };
+
+        if (messageId != null)
+        {
+            sendAfter(messageId, predicate, collector);
+        }
+        else
+        {
+            sendAll(predicate, collector);
+        }
+
+        page.forEach(l::onMessage);
+        return page.size();
+    }
+
     Optional<String> getMessageIdForRewind(final KfkaPredicate predicate, int offset);
 
     void clearExpired();
 
+    /**
+     * Delete about <code>maxRows</code> expired messages, so eviction can proceed in short steps. Stores that can
+     * expire everything cheaply in one go may ignore the limit, and stores that delete a range of rows may delete a few
+     * more if expired messages are added to that range concurrently.
+     *
+     * @param maxRows The number of messages to delete
+     * @return The number of messages deleted. Less than <code>maxRows</code> means there are no more to delete.
+     */
+    default long clearExpired(int maxRows)
+    {
+        clearExpired();
+        return 0;
+    }
+
     void sendAll(KfkaPredicate predicate, KfkaMessageListener<T> l);
 
     Optional<String> getLastKnownId();
 
     int sendIncluding(String messageId, KfkaPredicate predicate, KfkaMessageListener<T> l);
+
+    /**
+     * Replay only the headers of the matching messages, for uses such as counting or indexing that do not need the
+     * payload. Stores that can avoid reading payloads altogether should override this.
+     *
+     * @param messageId The message id to replay after, or <code>null</code> to replay all messages
+     * @param predicate The filter to apply
+     * @param consumer  The consumer of the headers
+     * @return The number of headers sent
+     */
+    default int sendHeadersAfter(String messageId, KfkaPredicate predicate, Consumer<KfkaMessageHeader> consumer)
+    {
+        final KfkaMessageListener<T> listener = msg -> consumer.accept(KfkaMessageHeader.of(msg));
+        if (messageId != null)
+        {
+            return sendAfter(messageId, predicate, listener);
+        }
+
+        final int[] sent = new int[1];
+        sendAll(predicate, msg ->
+        {
+            listener.onMessage(msg);
+            sent[0]++;
+        });
+        return sent[0];
+    }
 }
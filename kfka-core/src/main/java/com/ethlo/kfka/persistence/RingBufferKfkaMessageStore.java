@@ -0,0 +1,396 @@
+package com.ethlo.kfka.persistence;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ethlo.kfka.Assert;
+import com.ethlo.kfka.KfkaMessage;
+import com.ethlo.kfka.KfkaMessageListener;
+import com.ethlo.kfka.KfkaPredicate;
+
+/**
+ * Bounded, in-memory message store. Messages are kept in a ring buffer in the order they were added, and the oldest
+ * message is overwritten once the buffer is full.
+ * <p>
+ * Message id hashes, topics and timestamps are kept in primitive arrays alongside the messages, so that scans only
+ * dereference the messages that are candidates for delivery. Writers claim a range of slots with a single atomic
+ * increment and publish them in claim order. Readers never lock: each slot carries its sequence number, which is
+ * checked before and after the slot is read to detect a concurrent overwrite.
+ * <p>
+ * There is no index on message id: resuming after a message scans back from the newest message until it is found,
+ * so the cost grows with how far behind the client is. Topics are mapped to codes that are never released, so the
+ * store is meant for a bounded set of topics.
+ *
+ * @param <T> The message type
+ */
+public class RingBufferKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageStore<T>
+{
+    private static final long WRITING = -1;
+    private static final int NO_TOPIC = -1;
+    private static final int MAX_SPINS = 100;
+
+    private final int capacity;
+    private final int mask;
+    private final Duration ttl;
+
+    private final Object[] messages;
+    private final int[] idHashes;
+    private final int[] topicCodes;
+    private final long[] timestamps;
+    private final AtomicLongArray sequences;
+
+    private final ConcurrentMap<String, Integer> topicCodeMap = new ConcurrentHashMap<>();
+    private final AtomicInteger nextTopicCode = new AtomicInteger();
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private volatile long published;
+
+    /**
+     * @param capacity The maximum number of messages to hold. Rounded up to the nearest power of two.
+     * @param ttl      The time to live for messages. Use 0 for forever.
+     */
+    public RingBufferKfkaMessageStore(int capacity, Duration ttl)
+    {
+        Assert.isTrue(capacity > 0 && capacity <= 1 << 30, () -> "capacity must be between 1 and 2^30");
+        Assert.notNull(ttl, "ttl may not be null");
+        int size = 1;
+        while (size < capacity)
+        {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = this.capacity - 1;
+        this.ttl = ttl;
+        this.messages = new Object[this.capacity];
+        this.idHashes = new int[this.capacity];
+        this.topicCodes = new int[this.capacity];
+        this.timestamps = new long[this.capacity];
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++)
+        {
+            sequences.set(i, WRITING);
+        }
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    @Override
+    public void addAll(List<T> values)
+    {
+        final int count = values.size();
+        if (count == 0)
+        {
+            return;
+        }
+        Assert.isTrue(count <= capacity, () -> "Cannot add " + count + " messages at once to a store with a capacity of " + capacity);
+
+        // Resolve everything that could fail before claiming slots, as claimed slots must always be published
+        final int[] hashes = new int[count];
+        final int[] codes = new int[count];
+        final long[] millis = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            final T value = values.get(i);
+            Assert.notNull(value, "message may not be null");
+            Assert.notNull(value.getMessageId(), "messageId may not be null");
+            Assert.notNull(value.getTopic(), "topic may not be null");
+            Assert.notNull(value.getTimestamp(), "timestamp may not be null");
+            hashes[i] = value.getMessageId().hashCode();
+            millis[i] = value.getTimestamp().toInstant().toEpochMilli();
+            codes[i] = topicCode(value.getTopic());
+        }
+
+        final long start = claimed.getAndAdd(count);
+        try
+        {
+            // A writer a lap behind may still be writing the same slots, so wait for it to publish them first
+            awaitPublished(start + count - capacity);
+            for (int i = 0; i < count; i++)
+            {
+                write(start + i, values.get(i), hashes[i], codes[i], millis[i]);
+            }
+        }
+        finally
+        {
+            // Slots left unwritten keep the sequence of the previous lap, or the initial WRITING marker, which do not
+            // match theirs, so readers skip them
+            publish(start, count);
+        }
+    }
+
+    private void publish(long start, int count)
+    {
+        // Publish in claim order, so readers never see gaps
+        awaitPublished(start);
+        published = start + count;
+    }
+
+    private void awaitPublished(long sequence)
+    {
+        int spins = 0;
+        while (published < sequence)
+        {
+            if (++spins < MAX_SPINS)
+            {
+                Thread.onSpinWait();
+            }
+            else
+            {
+                // The preceding writer is not running, give it a chance to publish
+                Thread.yield();
+            }
+        }
+    }
+
+    private void write(long sequence, T value, int idHash, int topicCode, long timestamp)
+    {
+        final int slot = (int) (sequence & mask);
+        sequences.setOpaque(slot, WRITING);
+        VarHandle.releaseFence();
+        messages[slot] = value;
+        idHashes[slot] = idHash;
+        topicCodes[slot] = topicCode;
+        timestamps[slot] = timestamp;
+        sequences.setRelease(slot, sequence);
+    }
+
+    private int topicCode(String topic)
+    {
+        return topicCodeMap.computeIfAbsent(topic, t -> nextTopicCode.getAndIncrement());
+    }
+
+    /**
+     * Read the message stored for the given sequence, or <code>null</code> if it has been overwritten.
+     */
+    @SuppressWarnings("unchecked")
+    private T read(long sequence)
+    {
+        final int slot = (int) (sequence & mask);
+        if (sequences.getAcquire(slot) != sequence)
+        {
+            return null;
+        }
+        final T value = (T) messages[slot];
+        VarHandle.acquireFence();
+        return sequences.getOpaque(slot) == sequence ? value : null;
+    }
+
+    private long oldest(long end)
+    {
+        return Math.max(head.get(), end - capacity);
+    }
+
+    private long getTtlTs()
+    {
+        return ttl.isZero() ? Long.MIN_VALUE : System.currentTimeMillis() - ttl.toMillis();
+    }
+
+    /**
+     * Find the sequence of the message with the given id, searching from the newest message since that is where
+     * clients typically resume from.
+     */
+    private long locate(String messageId, long start, long end)
+    {
+        final int hash = messageId.hashCode();
+        for (long seq = end - 1; seq >= start; seq--)
+        {
+            if (idHashes[(int) (seq & mask)] == hash)
+            {
+                final T value = read(seq);
+                if (value != null && messageId.equals(value.getMessageId()))
+                {
+                    return seq;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int send(long from, long end, String afterMessageId, boolean including, KfkaPredicate predicate, int limit, KfkaMessageListener<T> l)
+    {
+        final int topicCode = predicate.getTopic() != null ? topicCodeMap.getOrDefault(predicate.getTopic(), NO_TOPIC) : NO_TOPIC;
+        if (predicate.getTopic() != null && topicCode == NO_TOPIC)
+        {
+            return 0;
+        }
+
+        final long ttlTs = getTtlTs();
+        int sent = 0;
+        for (long seq = Math.max(from, oldest(end)); seq < end && sent < limit; seq++)
+        {
+            final int slot = (int) (seq & mask);
+            if ((topicCode != NO_TOPIC && topicCodes[slot] != topicCode) || timestamps[slot] <= ttlTs)
+            {
+                continue;
+            }
+
+            final T value = read(seq);
+            if (value == null || !predicate.matches(value))
+            {
+                continue;
+            }
+
+            if (afterMessageId != null)
+            {
+                final int cmp = value.getMessageId().compareTo(afterMessageId);
+                if (cmp < 0 || (cmp == 0 && !including))
+                {
+                    continue;
+                }
+            }
+
+            l.onMessage(value);
+            sent++;
+        }
+        return sent;
+    }
+
+    @Override
+    public int sendAfter(String messageId, KfkaPredicate predicate, KfkaMessageListener<T> l)
+    {
+        return sendFrom(messageId, false, predicate, Integer.MAX_VALUE, l);
+    }
+
+    @Override
+    public int sendAfter(String messageId, KfkaPredicate predicate, int limit, KfkaMessageListener<T> l)
+    {
+        if (messageId != null)
+        {
+            return sendFrom(messageId, false, predicate, limit, l);
+        }
+        final long end = published;
+        return send(oldest(end), end, null, false, predicate, limit, l);
+    }
+
+    @Override
+    public int sendIncluding(String messageId, KfkaPredicate predicate, KfkaMessageListener<T> l)
+    {
+        return sendFrom(messageId, true, predicate, Integer.MAX_VALUE, l);
+    }
+
+    private int sendFrom(String messageId, boolean including, KfkaPredicate predicate, int limit, KfkaMessageListener<T> l)
+    {
+        Assert.notNull(messageId, "messageId cannot be null");
+        final long end = published;
+        final long start = oldest(end);
+        final long seq = locate(messageId, start, end);
+        if (seq >= 0)
+        {
+            // Known message, deliver everything added after it
+            return send(including ? seq : seq + 1, end, null, false, predicate, limit, l);
+        }
+
+        // Unknown or evicted message, fall back to comparing ids
+        return send(start, end, messageId, including, predicate, limit, l);
+    }
+
+    @Override
+    public void sendAll(KfkaPredicate predicate, KfkaMessageListener<T> l)
+    {
+        final long end = published;
+        send(oldest(end), end, null, false, predicate, Integer.MAX_VALUE, l);
+    }
+
+    @Override
+    public Optional<String> getMessageIdForRewind(KfkaPredicate predicate, int offset)
+    {
+        if (offset <= 0)
+        {
+            return Optional.empty();
+        }
+
+        final long ttlTs = getTtlTs();
+        final long end = published;
+        final long start = oldest(end);
+        String found = null;
+        int count = 0;
+        for (long seq = end - 1; seq >= start && count < offset; seq--)
+        {
+            if (timestamps[(int) (seq & mask)] <= ttlTs)
+            {
+                continue;
+            }
+
+            final T value = read(seq);
+            if (value != null && predicate.matches(value))
+            {
+                found = value.getMessageId();
+                count++;
+            }
+        }
+        return Optional.ofNullable(found);
+    }
+
+    @Override
+    public Optional<String> getLastKnownId()
+    {
+        final long end = published;
+        if (end == oldest(end))
+        {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(read(end - 1)).map(KfkaMessage::getMessageId);
+    }
+
+    @Override
+    public long size()
+    {
+        final long end = published;
+        return end - oldest(end);
+    }
+
+    @Override
+    public void clear()
+    {
+        head.accumulateAndGet(published, Math::max);
+    }
+
+    @Override
+    public void clearExpired()
+    {
+        if (ttl.isZero())
+        {
+            return;
+        }
+
+        final long ttlTs = getTtlTs();
+        final long end = published;
+        long seq = oldest(end);
+        while (seq < end && timestamps[(int) (seq & mask)] <= ttlTs)
+        {
+            seq++;
+        }
+        head.accumulateAndGet(seq, Math::max);
+    }
+}
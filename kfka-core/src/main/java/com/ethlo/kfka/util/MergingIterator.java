@@ -0,0 +1,85 @@
+package com.ethlo.kfka.util;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges iterators that are each sorted by the given comparator into a single sorted iterator.
+ *
+ * @param <T> The element type
+ */
+public class MergingIterator<T> extends AbstractIterator<T>
+{
+    private final List<? extends CloseableIterator<T>> sources;
+    private final PriorityQueue<Head<T>> heads;
+    private boolean started;
+
+    public MergingIterator(List<? extends CloseableIterator<T>> sources, Comparator<? super T> comparator)
+    {
+        this.sources = sources;
+        this.heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> comparator.compare(a.value, b.value));
+    }
+
+    @Override
+    protected T computeNext()
+    {
+        if (!started)
+        {
+            started = true;
+            for (final CloseableIterator<T> source : sources)
+            {
+                advance(source);
+            }
+        }
+
+        final Head<T> head = heads.poll();
+        if (head == null)
+        {
+            return endOfData();
+        }
+        advance(head.source);
+        return head.value;
+    }
+
+    private void advance(CloseableIterator<T> source)
+    {
+        if (source.hasNext())
+        {
+            heads.add(new Head<>(source.next(), source));
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        for (final CloseableIterator<T> source : sources)
+        {
+            source.close();
+        }
+    }
+
+    private record Head<T>(T value, CloseableIterator<T> source)
+    {
+    }
+}
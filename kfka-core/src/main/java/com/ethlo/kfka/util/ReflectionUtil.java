@@ -21,9 +21,12 @@ package com.ethlo.kfka.util;
  */
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.ethlo.kfka.KfkaMessage;
@@ -31,6 +34,7 @@ import com.ethlo.kfka.KfkaMessage;
 public class ReflectionUtil
 {
     private static final Map<Class<?>, Map<String, Field>> fieldCache = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Map<String, Optional<MethodHandle>>> getterCache = new ConcurrentHashMap<>();
 
     private ReflectionUtil()
     {
@@ -72,4 +76,29 @@ public class ReflectionUtil
         }
         return null;
     }
+
+    /**
+     * Get a cached getter for a field of the given type or any of its super-classes
+     *
+     * @param type     The type to look up the field on
+     * @param propName The name of the field
+     * @return A method handle of type <code>(type) fieldType</code>, or empty if no such field exists
+     */
+    public static Optional<MethodHandle> getGetter(Class<? extends Serializable> type, String propName)
+    {
+        return getterCache.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(propName, name -> Optional.ofNullable(getFields(type).get(name)).map(ReflectionUtil::unreflectGetter));
+    }
+
+    private static MethodHandle unreflectGetter(Field field)
+    {
+        try
+        {
+            return MethodHandles.lookup().unreflectGetter(field);
+        }
+        catch (IllegalAccessException exc)
+        {
+            throw new IllegalStateException("Unable to access field " + field, exc);
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.jupiter.api.Test;
+
+import com.ethlo.kfka.persistence.RingBufferKfkaMessageStore;
+
+class EvictionSchedulerTest
+{
+    @Test
+    void testEvictsInChunksUntilShortChunk()
+    {
+        final ScriptedStore store = new ScriptedStore(100, 100, 42);
+        final EvictionScheduler scheduler = new EvictionScheduler(store, 100, 1);
+        assertThat(scheduler.evict()).isEqualTo(242L);
+        assertThat(store.requested).containsExactly(100, 100, 100);
+    }
+
+    @Test
+    void testPausesInProportionToChunkTime()
+    {
+        final EvictionScheduler scheduler = new EvictionScheduler(new ScriptedStore(), 100, 0.25);
+        assertThat(scheduler.getPauseNanos(1_000)).isEqualTo(3_000L);
+        assertThat(scheduler.getPauseNanos(Duration.ofMinutes(1).toNanos())).isEqualTo(Duration.ofSeconds(10).toNanos());
+        assertThat(new EvictionScheduler(new ScriptedStore(), 100, 1).getPauseNanos(1_000)).isEqualTo(0L);
+    }
+
+    private static class ScriptedStore extends RingBufferKfkaMessageStore<KfkaMessage>
+    {
+        private final Queue<Long> results = new LinkedList<>();
+        private final List<Integer> requested = new ArrayList<>();
+
+        ScriptedStore(long... results)
+        {
+            super(16, Duration.ZERO);
+            for (final long result : results)
+            {
+                this.results.add(result);
+            }
+        }
+
+        @Override
+        public long clearExpired(int maxRows)
+        {
+            requested.add(maxRows);
+            final Long result = results.poll();
+            return result != null ? result : 0;
+        }
+    }
+}
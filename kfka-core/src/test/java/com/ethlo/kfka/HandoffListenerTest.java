@@ -0,0 +1,143 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+
+class HandoffListenerTest
+{
+    private final List<String> received = new ArrayList<>();
+    private final KfkaMessageListener<CustomKfkaMessage> listener = msg -> received.add(msg.getMessageId());
+
+    private CustomKfkaMessage message(String messageId)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(1)
+                .messageId(messageId)
+                .topic("chat")
+                .type("mytype")
+                .payload("payload")
+                .build();
+    }
+
+    @Test
+    void testHoldsBackLiveMessagesDuringReplay()
+    {
+        final HandoffListener<CustomKfkaMessage> handoff = new HandoffListener<>(listener, 10, 100);
+        final int sent = handoff.replay(listener, l ->
+        {
+            l.onMessage(message("000001"));
+            handoff.onMessage(message("000002"));
+            handoff.onMessage(message("000003"));
+            l.onMessage(message("000002"));
+            return 2;
+        }, (after, l) -> 0);
+
+        assertThat(sent).isEqualTo(2);
+        assertThat(received).containsExactly("000001", "000002", "000003");
+
+        handoff.onMessage(message("000004"));
+        assertThat(received).containsExactly("000001", "000002", "000003", "000004");
+    }
+
+    @Test
+    void testDeliversLiveMessageWithLowerIdThanReplayed()
+    {
+        final HandoffListener<CustomKfkaMessage> handoff = new HandoffListener<>(listener, 10, 100);
+        handoff.replay(listener, l ->
+        {
+            l.onMessage(message("000001"));
+            l.onMessage(message("000003"));
+
+            // Written before 000003 was, but committed too late to be replayed
+            handoff.onMessage(message("000002"));
+            handoff.onMessage(message("000003"));
+            return 2;
+        }, (after, l) -> 0);
+
+        assertThat(received).containsExactly("000001", "000003", "000002");
+    }
+
+    @Test
+    void testCatchesUpFromStoreOnOverflow()
+    {
+        final HandoffListener<CustomKfkaMessage> handoff = new HandoffListener<>(listener, 1, 100);
+        final List<String> catchUps = new ArrayList<>();
+        final int sent = handoff.replay(listener, l ->
+        {
+            l.onMessage(message("000001"));
+            handoff.onMessage(message("000002"));
+            handoff.onMessage(message("000003"));
+            return 1;
+        }, (after, l) ->
+        {
+            catchUps.add(after);
+            l.onMessage(message("000002"));
+            l.onMessage(message("000003"));
+            return 2;
+        });
+
+        assertThat(sent).isEqualTo(3);
+        assertThat(catchUps).containsExactly("000001");
+        assertThat(received).containsExactly("000001", "000002", "000003");
+    }
+
+    @Test
+    void testReplaysInBatches()
+    {
+        final List<Integer> batchSizes = new ArrayList<>();
+        final KfkaMessageListener<CustomKfkaMessage> batching = new KfkaMessageListener<>()
+        {
+            @Override
+            public void onMessage(final CustomKfkaMessage msg)
+            {
+                onMessages(List.of(msg));
+            }
+
+            @Override
+            public void onMessages(final List<CustomKfkaMessage> msgs)
+            {
+                batchSizes.add(msgs.size());
+                msgs.forEach(msg -> received.add(msg.getMessageId()));
+            }
+        };
+
+        final HandoffListener<CustomKfkaMessage> handoff = new HandoffListener<>(batching, 10, 2);
+        handoff.replay(batching, l ->
+        {
+            l.onMessage(message("000001"));
+            l.onMessage(message("000002"));
+            l.onMessage(message("000003"));
+            handoff.onMessages(List.of(message("000004"), message("000005")));
+            return 3;
+        }, (after, l) -> 0);
+
+        assertThat(batchSizes).containsExactly(2, 1, 2);
+        assertThat(received).containsExactly("000001", "000002", "000003", "000004", "000005");
+    }
+}
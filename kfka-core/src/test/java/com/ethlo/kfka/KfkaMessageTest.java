@@ -0,0 +1,143 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+import com.ethlo.kfka.compression.GzipPayloadCompressor;
+import com.ethlo.kfka.compression.Lz4PayloadCompressor;
+import com.ethlo.kfka.compression.PayloadCodec;
+import com.ethlo.kfka.compression.PayloadCompressor;
+import com.ethlo.kfka.compression.TaggedPayloadCompressor;
+
+class KfkaMessageTest
+{
+    private final byte[] payload = "hello hello hello hello".getBytes(StandardCharsets.UTF_8);
+    private final AtomicInteger decompressions = new AtomicInteger();
+    private final PayloadCompressor counting = new GzipPayloadCompressor()
+    {
+        @Override
+        public byte[] decompress(final byte[] compressed)
+        {
+            decompressions.incrementAndGet();
+            return super.decompress(compressed);
+        }
+    };
+
+    @Test
+    void testDecompressedOnFirstAccessOnly()
+    {
+        final CustomKfkaMessage message = message();
+        final byte[] compressed = counting.compress(payload);
+        message.setCompressedPayload(compressed, counting);
+        assertThat(decompressions.get()).isEqualTo(0);
+
+        // Passed through without decompressing
+        assertThat(message.getCompressedPayload(counting) == compressed).isTrue();
+        assertThat(decompressions.get()).isEqualTo(0);
+
+        assertThat(new String(message.getPayload(), StandardCharsets.UTF_8)).isEqualTo("hello hello hello hello");
+        message.getPayload();
+        assertThat(decompressions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testCompressedFormDroppedOnceRead()
+    {
+        final CustomKfkaMessage message = message();
+        final byte[] compressed = counting.compress(payload);
+        message.setCompressedPayload(compressed, counting);
+        assertThat(message.getHeldPayloadLength()).isEqualTo(compressed.length);
+
+        message.getPayload();
+        assertThat(message.getHeldPayloadLength()).isEqualTo(payload.length);
+        assertThat(message.getPayloadCompressor() == null).isTrue();
+    }
+
+    @Test
+    void testRecompressedForOtherCompressor()
+    {
+        final CustomKfkaMessage message = message();
+        message.setCompressedPayload(counting.compress(payload), counting);
+        final PayloadCompressor lz4 = new Lz4PayloadCompressor();
+        assertThat(new String(lz4.decompress(message.getCompressedPayload(lz4)), StandardCharsets.UTF_8)).isEqualTo("hello hello hello hello");
+    }
+
+    @Test
+    void testRecompressedForOtherInstanceOfSameClass()
+    {
+        final TaggedPayloadCompressor lz4 = new TaggedPayloadCompressor(PayloadCodec.LZ4, 0, 1);
+        final TaggedPayloadCompressor deflate = new TaggedPayloadCompressor(PayloadCodec.DEFLATE, 0, 1);
+        final CustomKfkaMessage message = message();
+        message.setCompressedPayload(lz4.compress(payload), lz4);
+        assertThat(TaggedPayloadCompressor.getCodec(message.getCompressedPayload(deflate))).isEqualTo(PayloadCodec.DEFLATE);
+    }
+
+    @Test
+    void testToStringDoesNotDecompress()
+    {
+        final CustomKfkaMessage message = message();
+        message.setCompressedPayload(counting.compress(payload), counting);
+        assertThat(message.toString()).contains("compressed");
+        assertThat(decompressions.get()).isEqualTo(0);
+    }
+
+    @Test
+    void testSerializedDecompressed() throws IOException, ClassNotFoundException
+    {
+        final CustomKfkaMessage message = message();
+        message.setCompressedPayload(counting.compress(payload), counting);
+
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bout))
+        {
+            out.writeObject(message);
+        }
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray())))
+        {
+            final CustomKfkaMessage copy = (CustomKfkaMessage) in.readObject();
+            assertThat(new String(copy.getPayload(), StandardCharsets.UTF_8)).isEqualTo("hello hello hello hello");
+            assertThat(copy.getPayloadCompressor() == null).isTrue();
+        }
+    }
+
+    private CustomKfkaMessage message()
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(1)
+                .messageId("000001")
+                .topic("chat")
+                .type("mytype")
+                .payload("ignored")
+                .build();
+    }
+}
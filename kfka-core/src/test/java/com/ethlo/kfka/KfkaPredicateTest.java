@@ -0,0 +1,122 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+
+class KfkaPredicateTest
+{
+    @Test
+    void testMatchTopicAndType()
+    {
+        final CustomKfkaMessage msg = message(123);
+        assertThat(new KfkaPredicate().matches(msg)).isTrue();
+        assertThat(new KfkaPredicate().topic("foo").type("bar").matches(msg)).isTrue();
+        assertThat(new KfkaPredicate().topic("foo").type("baz").matches(msg)).isFalse();
+        assertThat(new KfkaPredicate().topic("baz").matches(msg)).isFalse();
+    }
+
+    @Test
+    void testEquality()
+    {
+        final KfkaPredicate predicate = new KfkaPredicate().topic("foo").type("bar").addPropertyMatch("userId", 123);
+        final KfkaPredicate same = new KfkaPredicate().addPropertyMatch("userId", 123).type("bar").topic("foo");
+        assertThat(predicate).isEqualTo(same);
+        assertThat(predicate.hashCode()).isEqualTo(same.hashCode());
+        assertThat(predicate).isNotEqualTo(new KfkaPredicate().topic("foo").type("bar").addPropertyMatch("userId", 321));
+    }
+
+    @Test
+    void testMatchObjectProperty()
+    {
+        final KfkaPredicate predicate = new KfkaPredicate().topic("foo").addPropertyMatch("userId", 123);
+        assertThat(predicate.matches(message(123))).isTrue();
+        assertThat(predicate.matches(message(321))).isFalse();
+    }
+
+    @Test
+    void testPropertyMatchAlsoRequiresTopicAndType()
+    {
+        // Earlier versions did not check topic and type once a property match was added
+        assertThat(new KfkaPredicate().topic("baz").addPropertyMatch("userId", 123).matches(message(123))).isFalse();
+        assertThat(new KfkaPredicate().type("baz").addPropertyMatch("userId", 123).matches(message(123))).isFalse();
+        assertThat(new KfkaPredicate().topic("foo").type("bar").addPropertyMatch("userId", 123).matches(message(123))).isTrue();
+    }
+
+    @Test
+    void testMatchPrimitiveProperty()
+    {
+        final KfkaPredicate predicate = new KfkaPredicate().addPropertyMatch("count", 5);
+        assertThat(predicate.matches(new CountMessage(5))).isTrue();
+        assertThat(predicate.matches(new CountMessage(6))).isFalse();
+
+        // Different wrapper type never equals, as with the boxed comparison
+        assertThat(new KfkaPredicate().addPropertyMatch("count", 5L).matches(new CountMessage(5))).isFalse();
+    }
+
+    @Test
+    void testUnknownPropertyIsIgnored()
+    {
+        assertThat(new KfkaPredicate().addPropertyMatch("nonExisting", 1).matches(message(123))).isTrue();
+    }
+
+    @Test
+    void testRecompiledOnChange()
+    {
+        final KfkaPredicate predicate = new KfkaPredicate().addPropertyMatch("userId", 123);
+        assertThat(predicate.matches(message(123))).isTrue();
+        assertThat(predicate.matches(new CountMessage(1))).isTrue();
+
+        predicate.addPropertyMatch("userId", 321);
+        assertThat(predicate.matches(message(123))).isFalse();
+        predicate.topic("bar");
+        assertThat(predicate.matches(message(321))).isFalse();
+    }
+
+    private CustomKfkaMessage message(int userId)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder().userId(userId).topic("foo").type("bar").payload("payload").build();
+    }
+
+    private static class CountMessage extends KfkaMessage
+    {
+        private final int count;
+
+        CountMessage(int count)
+        {
+            super(null);
+            this.count = count;
+        }
+
+        @Override
+        public Collection<String> getQueryableProperties()
+        {
+            return List.of("count");
+        }
+    }
+}
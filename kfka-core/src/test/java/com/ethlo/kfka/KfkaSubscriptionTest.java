@@ -0,0 +1,224 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+import com.ethlo.kfka.persistence.RingBufferKfkaMessageStore;
+
+class KfkaSubscriptionTest
+{
+    private final RingBufferKfkaMessageStore<CustomKfkaMessage> store = new RingBufferKfkaMessageStore<>(64, Duration.ZERO);
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final KfkaManager<CustomKfkaMessage> kfkaManager = new KfkaManagerImpl<>(store, new TimeOrderedMessageIdGenerator(1), new KfkaConfig()
+            .handoffBufferSize(2)
+            .replayBatchSize(4)
+            .dispatchExecutor(tasks::add));
+
+    private void runTasks()
+    {
+        while (!tasks.isEmpty())
+        {
+            tasks.remove(0).run();
+        }
+    }
+
+    private CustomKfkaMessage message(int userId)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(userId)
+                .topic("chat")
+                .type("mytype")
+                .payload("payload")
+                .build();
+    }
+
+    private void addMessages(int from, int to)
+    {
+        for (int i = from; i <= to; i++)
+        {
+            kfkaManager.add(message(i));
+        }
+    }
+
+    @Test
+    void testReplaysOnlyWhatIsRequested()
+    {
+        addMessages(1, 10);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        kfkaManager.publisher(new KfkaPredicate().topic("chat"), 6).subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        assertThat(subscriber.userIds).containsExactly(5, 6);
+
+        addMessages(11, 11);
+        subscriber.subscription.request(10);
+        assertThat(subscriber.userIds).containsExactly(5, 6, 7, 8, 9, 10, 11);
+
+        addMessages(12, 12);
+        runTasks();
+        assertThat(subscriber.userIds).containsExactly(5, 6, 7, 8, 9, 10, 11, 12);
+    }
+
+    @Test
+    void testDeliversLiveMessagesOnExecutor()
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        kfkaManager.publisher(new KfkaPredicate()).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        addMessages(1, 2);
+        assertThat(subscriber.userIds).isEmpty();
+        assertThat(tasks).hasSize(1);
+
+        runTasks();
+        assertThat(subscriber.userIds).containsExactly(1, 2);
+    }
+
+    @Test
+    void testReadsFromStoreWhenLiveBufferOverflows()
+    {
+        addMessages(1, 2);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        kfkaManager.publisher(new KfkaPredicate()).subscribe(subscriber);
+
+        addMessages(3, 9);
+        assertThat(subscriber.userIds).isEmpty();
+
+        subscriber.subscription.request(5);
+        assertThat(subscriber.userIds).containsExactly(3, 4, 5, 6, 7);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        addMessages(10, 10);
+        runTasks();
+        assertThat(subscriber.userIds).containsExactly(3, 4, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    void testDeliversLateLiveMessageWithLowerIdOnce()
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final KfkaSubscription<CustomKfkaMessage> subscription = new KfkaSubscription<>(subscriber, store, new KfkaPredicate(), "000005", true, 4, 4, kfkaManager::removeListener, Runnable::run);
+        subscriber.onSubscribe(subscription);
+        subscription.request(Long.MAX_VALUE);
+
+        // Written too late to be read from the store, with a lower id than the cursor
+        final CustomKfkaMessage late = message(3);
+        late.setMessageId("000003");
+        subscription.onMessage(late);
+        subscription.onMessage(late);
+        assertThat(subscriber.userIds).containsExactly(3);
+    }
+
+    @Test
+    void testRewindWhileMessagesAreCleared()
+    {
+        final RingBufferKfkaMessageStore<CustomKfkaMessage> clearing = new RingBufferKfkaMessageStore<>(64, Duration.ZERO)
+        {
+            @Override
+            public Optional<String> getMessageIdForRewind(KfkaPredicate predicate, int offset)
+            {
+                final Optional<String> result = super.getMessageIdForRewind(predicate, offset);
+                clear();
+                return result;
+            }
+        };
+        final KfkaManager<CustomKfkaMessage> manager = new KfkaManagerImpl<>(clearing, new TimeOrderedMessageIdGenerator(1));
+        for (int i = 1; i <= 5; i++)
+        {
+            manager.add(message(i));
+        }
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        manager.publisher(new KfkaPredicate(), 2).subscribe(subscriber);
+        subscriber.subscription.request(10);
+        assertThat(subscriber.error).isNull();
+        assertThat(subscriber.userIds).isEmpty();
+    }
+
+    @Test
+    void testRejectsNonPositiveRequest()
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        kfkaManager.publisher(new KfkaPredicate()).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+
+        addMessages(1, 1);
+        subscriber.subscription.request(1);
+        assertThat(subscriber.userIds).isEmpty();
+    }
+
+    @Test
+    void testCancelStopsDelivery()
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        kfkaManager.publisher(new KfkaPredicate()).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        addMessages(1, 1);
+        runTasks();
+        subscriber.subscription.cancel();
+        addMessages(2, 2);
+        runTasks();
+        assertThat(subscriber.userIds).containsExactly(1);
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<CustomKfkaMessage>
+    {
+        private final List<Integer> userIds = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final CustomKfkaMessage item)
+        {
+            userIds.add(item.getUserId());
+        }
+
+        @Override
+        public void onError(final Throwable throwable)
+        {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete()
+        {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ListenerIndexTest
+{
+    private final ListenerIndex<KfkaMessage> index = new ListenerIndex<>();
+
+    private ListenerRegistration<KfkaMessage> register(KfkaPredicate predicate)
+    {
+        final ListenerRegistration<KfkaMessage> registration = new ListenerRegistration<>(predicate, new CollectingListener<>());
+        index.add(registration);
+        return registration;
+    }
+
+    private List<ListenerRegistration<KfkaMessage>> candidates(String topic, String type)
+    {
+        final List<ListenerRegistration<KfkaMessage>> result = new ArrayList<>();
+        index.forEachCandidate(topic, type, result::add);
+        return result;
+    }
+
+    @Test
+    void testRoutesOnTopicAndType()
+    {
+        final ListenerRegistration<KfkaMessage> all = register(new KfkaPredicate());
+        final ListenerRegistration<KfkaMessage> foo = register(new KfkaPredicate().topic("foo"));
+        final ListenerRegistration<KfkaMessage> bar = register(new KfkaPredicate().topic("bar"));
+        final ListenerRegistration<KfkaMessage> created = register(new KfkaPredicate().type("created"));
+        final ListenerRegistration<KfkaMessage> fooCreated = register(new KfkaPredicate().topic("foo").type("created"));
+
+        assertThat(candidates("foo", "created")).containsOnly(all, foo, created, fooCreated);
+        assertThat(candidates("foo", "deleted")).containsOnly(all, foo);
+        assertThat(candidates("bar", "created")).containsOnly(all, bar, created);
+        assertThat(candidates("baz", "deleted")).containsOnly(all);
+    }
+
+    @Test
+    void testVisitsEachRegistrationOnceWithoutTopicOrType()
+    {
+        final ListenerRegistration<KfkaMessage> all = register(new KfkaPredicate());
+        final ListenerRegistration<KfkaMessage> foo = register(new KfkaPredicate().topic("foo"));
+        final ListenerRegistration<KfkaMessage> created = register(new KfkaPredicate().type("created"));
+
+        assertThat(candidates("foo", null)).containsExactlyInAnyOrder(all, foo);
+        assertThat(candidates(null, "created")).containsExactlyInAnyOrder(all, created);
+        assertThat(candidates(null, null)).containsExactly(all);
+    }
+
+    @Test
+    void testRemove()
+    {
+        final ListenerRegistration<KfkaMessage> foo = register(new KfkaPredicate().topic("foo"));
+        final ListenerRegistration<KfkaMessage> other = register(new KfkaPredicate().topic("foo"));
+        index.remove(foo);
+        assertThat(candidates("foo", "created")).containsOnly(other);
+        index.remove(other);
+        assertThat(candidates("foo", "created")).isEmpty();
+    }
+}
@@ -0,0 +1,135 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class QueuedListenerTest
+{
+    private final Queue<Runnable> tasks = new LinkedList<>();
+
+    private void runPending()
+    {
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+        {
+            task.run();
+        }
+    }
+
+    @Test
+    void testDeliversInOrderOnExecutor()
+    {
+        final CollectingListener<String> target = new CollectingListener<>();
+        final QueuedListener<String> listener = new QueuedListener<>(target, tasks::add, 10, OverflowPolicy.BLOCK, l -> {});
+        listener.onMessage("a");
+        listener.onMessage("b");
+        listener.onMessage("c");
+
+        assertThat(target.getReceived()).isEmpty();
+        assertThat(tasks).hasSize(1);
+
+        runPending();
+        assertThat(target.getReceived()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void testDeliversQueuedMessagesAsOneBatch()
+    {
+        final List<List<String>> batches = new LinkedList<>();
+        final KfkaMessageListener<String> target = new KfkaMessageListener<>()
+        {
+            @Override
+            public void onMessage(final String msg)
+            {
+                batches.add(List.of(msg));
+            }
+
+            @Override
+            public void onMessages(final List<String> msgs)
+            {
+                batches.add(List.copyOf(msgs));
+            }
+        };
+
+        final QueuedListener<String> listener = new QueuedListener<>(target, tasks::add, 10, OverflowPolicy.BLOCK, l -> {});
+        listener.onMessages(List.of("a", "b"));
+        listener.onMessage("c");
+
+        runPending();
+        assertThat(batches).containsExactly(List.of("a", "b", "c"));
+    }
+
+    @Test
+    void testDropOldest()
+    {
+        final CollectingListener<String> target = new CollectingListener<>();
+        final QueuedListener<String> listener = new QueuedListener<>(target, tasks::add, 2, OverflowPolicy.DROP_OLDEST, l -> {});
+        listener.onMessage("a");
+        listener.onMessage("b");
+        listener.onMessage("c");
+
+        runPending();
+        assertThat(target.getReceived()).containsExactly("b", "c");
+    }
+
+    @Test
+    void testDisconnect()
+    {
+        final AtomicBoolean notified = new AtomicBoolean();
+        final List<String> received = new LinkedList<>();
+        final KfkaMessageListener<String> target = new KfkaMessageListener<>()
+        {
+            @Override
+            public void onMessage(final String msg)
+            {
+                received.add(msg);
+            }
+
+            @Override
+            public void onDisconnected()
+            {
+                notified.set(true);
+            }
+        };
+
+        final AtomicBoolean removed = new AtomicBoolean();
+        final QueuedListener<String> listener = new QueuedListener<>(target, tasks::add, 2, OverflowPolicy.DISCONNECT, l -> removed.set(true));
+        listener.onMessage("a");
+        listener.onMessage("b");
+        listener.onMessage("c");
+
+        assertThat(removed.get()).isTrue();
+        assertThat(notified.get()).isTrue();
+
+        runPending();
+        listener.onMessage("d");
+        assertThat(received).isEmpty();
+        assertThat(listener.queued()).isEqualTo(0);
+    }
+}
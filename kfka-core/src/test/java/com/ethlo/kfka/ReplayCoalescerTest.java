@@ -0,0 +1,168 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+import com.ethlo.kfka.persistence.RingBufferKfkaMessageStore;
+
+class ReplayCoalescerTest
+{
+    private final AtomicInteger scans = new AtomicInteger();
+    private final RingBufferKfkaMessageStore<CustomKfkaMessage> store = new RingBufferKfkaMessageStore<>(64, Duration.ZERO)
+    {
+        @Override
+        public int sendAfter(String messageId, KfkaPredicate predicate, KfkaMessageListener<CustomKfkaMessage> l)
+        {
+            scans.incrementAndGet();
+            return super.sendAfter(messageId, predicate, l);
+        }
+    };
+
+    private CustomKfkaMessage message(String messageId)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(1)
+                .messageId(messageId)
+                .topic("chat")
+                .type("mytype")
+                .payload("payload")
+                .build();
+    }
+
+    @Test
+    void testSharesScanBetweenConcurrentReplays() throws InterruptedException
+    {
+        for (int i = 1; i <= 5; i++)
+        {
+            store.addAll(List.of(message(String.format("%06d", i))));
+        }
+
+        final ReplayCoalescer<CustomKfkaMessage> coalescer = new ReplayCoalescer<>(store, Duration.ofMillis(500), 10);
+        final Map<String, List<String>> received = new ConcurrentHashMap<>();
+        final Map<String, Integer> sent = new ConcurrentHashMap<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (final String from : List.of("000003", "000001", "000004"))
+        {
+            final List<String> ids = new ArrayList<>();
+            received.put(from, ids);
+            final Thread thread = new Thread(() -> sent.put(from, coalescer.sendAfter(from, new KfkaPredicate().topic("chat"), msg -> ids.add(msg.getMessageId()))));
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertThat(scans.get()).isEqualTo(1);
+        assertThat(received.get("000001")).containsExactly("000002", "000003", "000004", "000005");
+        assertThat(received.get("000003")).containsExactly("000004", "000005");
+        assertThat(received.get("000004")).containsExactly("000005");
+        assertThat(sent.get("000001")).isEqualTo(4);
+    }
+
+    @Test
+    void testSeparateScansForDifferentPredicates()
+    {
+        store.addAll(List.of(message("000001"), message("000002")));
+        final ReplayCoalescer<CustomKfkaMessage> coalescer = new ReplayCoalescer<>(store, Duration.ZERO, 10);
+        assertThat(coalescer.sendAfter("000001", new KfkaPredicate().topic("chat"), msg -> {})).isEqualTo(1);
+        assertThat(coalescer.sendAfter("000001", new KfkaPredicate().topic("news"), msg -> {})).isEqualTo(0);
+        assertThat(scans.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testSlowListenerLeavesScan() throws InterruptedException
+    {
+        for (int i = 1; i <= 6; i++)
+        {
+            store.addAll(List.of(message(String.format("%06d", i))));
+        }
+
+        final ReplayCoalescer<CustomKfkaMessage> coalescer = new ReplayCoalescer<>(store, Duration.ofMillis(300), 2);
+        final CountDownLatch fastDone = new CountDownLatch(1);
+        final List<String> fast = new ArrayList<>();
+        final List<String> slow = new ArrayList<>();
+        final Thread fastThread = new Thread(() ->
+        {
+            coalescer.sendAfter("000000", new KfkaPredicate(), msg -> fast.add(msg.getMessageId()));
+            fastDone.countDown();
+        });
+        final Thread slowThread = new Thread(() -> coalescer.sendAfter("000000", new KfkaPredicate(), msg ->
+        {
+            // Blocks until the other replay is done, which it can only be if it is not held up by this one
+            awaitQuietly(fastDone);
+            slow.add(msg.getMessageId());
+        }));
+
+        fastThread.start();
+        Thread.sleep(50);
+        slowThread.start();
+        fastThread.join();
+        slowThread.join();
+
+        assertThat(fastDone.getCount()).isEqualTo(0L);
+        assertThat(fast).containsExactly("000001", "000002", "000003", "000004", "000005", "000006");
+        assertThat(slow).containsExactly("000001", "000002", "000003", "000004", "000005", "000006");
+        assertThat(scans.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testPredicateChangedDuringReplay()
+    {
+        store.addAll(List.of(message("000001"), message("000002")));
+        final ReplayCoalescer<CustomKfkaMessage> coalescer = new ReplayCoalescer<>(store, Duration.ZERO, 10);
+        final KfkaPredicate predicate = new KfkaPredicate().topic("chat");
+        final List<String> received = new ArrayList<>();
+        coalescer.sendAfter("000000", predicate, msg ->
+        {
+            predicate.topic("news");
+            received.add(msg.getMessageId());
+        });
+        assertThat(received).containsExactly("000001", "000002");
+        assertThat(coalescer.sendAfter("000000", predicate, msg -> {})).isEqualTo(0);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
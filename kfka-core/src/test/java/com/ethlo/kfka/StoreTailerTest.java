@@ -0,0 +1,134 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+import com.ethlo.kfka.persistence.RingBufferKfkaMessageStore;
+
+class StoreTailerTest
+{
+    private final RingBufferKfkaMessageStore<CustomKfkaMessage> store = new RingBufferKfkaMessageStore<>(64, Duration.ZERO);
+
+    private CustomKfkaMessage message(String messageId)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(1)
+                .messageId(messageId)
+                .topic("chat")
+                .type("mytype")
+                .payload("payload")
+                .build();
+    }
+
+    @Test
+    void testPollsFromLastKnownId()
+    {
+        store.addAll(List.of(message("000001")));
+        final List<CustomKfkaMessage> received = new CopyOnWriteArrayList<>();
+        final StoreTailer<CustomKfkaMessage> tailer = new StoreTailer<>(store, received::addAll, new RecentMessageIds(100), 100, Duration.ofMillis(1), Duration.ofMillis(8), Duration.ZERO);
+
+        assertThat(tailer.poll()).isEqualTo(0);
+        store.addAll(List.of(message("000002"), message("000003")));
+        assertThat(tailer.poll()).isEqualTo(2);
+        assertThat(tailer.poll()).isEqualTo(0);
+        assertThat(received.stream().map(KfkaMessage::getMessageId).toList()).containsExactly("000002", "000003");
+    }
+
+    @Test
+    void testDeliversMessageVisibleAfterHigherIds()
+    {
+        // Like a database, read in message id order rather than in the order the messages became visible
+        final RingBufferKfkaMessageStore<CustomKfkaMessage> idOrdered = new RingBufferKfkaMessageStore<>(64, Duration.ZERO)
+        {
+            @Override
+            public int sendAfter(String messageId, KfkaPredicate predicate, KfkaMessageListener<CustomKfkaMessage> l)
+            {
+                final List<CustomKfkaMessage> after = new ArrayList<>();
+                sendAll(predicate, msg ->
+                {
+                    if (msg.getMessageId().compareTo(messageId) > 0)
+                    {
+                        after.add(msg);
+                    }
+                });
+                after.sort(Comparator.comparing(KfkaMessage::getMessageId));
+                after.forEach(l::onMessage);
+                return after.size();
+            }
+        };
+        idOrdered.addAll(List.of(message("000000")));
+        final List<CustomKfkaMessage> received = new CopyOnWriteArrayList<>();
+        final StoreTailer<CustomKfkaMessage> tailer = new StoreTailer<>(idOrdered, received::addAll, new RecentMessageIds(100), 100, Duration.ofMillis(1), Duration.ofMillis(8), Duration.ofHours(1));
+
+        idOrdered.addAll(List.of(message("000001"), message("000003")));
+        assertThat(tailer.poll()).isEqualTo(2);
+
+        // Committed late, after the cursor has moved past it
+        idOrdered.addAll(List.of(message("000002")));
+        assertThat(tailer.poll()).isEqualTo(1);
+        assertThat(tailer.poll()).isEqualTo(0);
+        assertThat(received.stream().map(KfkaMessage::getMessageId).toList()).containsExactly("000001", "000003", "000002");
+    }
+
+    @Test
+    void testBacksOffWhileIdle()
+    {
+        final StoreTailer<CustomKfkaMessage> tailer = new StoreTailer<>(store, m -> {}, new RecentMessageIds(100), 100, Duration.ofMillis(1), Duration.ofMillis(5), Duration.ZERO);
+        assertThat(tailer.nextDelayNanos(0)).isEqualTo(Duration.ofMillis(2).toNanos());
+        assertThat(tailer.nextDelayNanos(0)).isEqualTo(Duration.ofMillis(4).toNanos());
+        assertThat(tailer.nextDelayNanos(0)).isEqualTo(Duration.ofMillis(5).toNanos());
+        assertThat(tailer.nextDelayNanos(3)).isEqualTo(Duration.ofMillis(1).toNanos());
+    }
+
+    @Test
+    void testDeliversMessagesFromOtherNodesOnce() throws InterruptedException
+    {
+        final KfkaManager<CustomKfkaMessage> producer = new KfkaManagerImpl<>(store, new TimeOrderedMessageIdGenerator(1));
+        try (final KfkaManager<CustomKfkaMessage> consumer = new KfkaManagerImpl<>(store, new TimeOrderedMessageIdGenerator(2), new KfkaConfig().tail(Duration.ofMillis(1), Duration.ofMillis(10))))
+        {
+            final List<CustomKfkaMessage> received = new CopyOnWriteArrayList<>();
+            consumer.addListener(received::add);
+
+            producer.add(message(null));
+            final long deadline = System.currentTimeMillis() + 5_000;
+            while (received.isEmpty() && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(5);
+            }
+            assertThat(received).hasSize(1);
+
+            consumer.add(message(null));
+            assertThat(received).hasSize(2);
+            Thread.sleep(100);
+            assertThat(received).hasSize(2);
+        }
+    }
+}
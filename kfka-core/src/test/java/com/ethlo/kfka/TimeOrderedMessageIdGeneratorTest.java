@@ -0,0 +1,102 @@
+package com.ethlo.kfka;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedMessageIdGeneratorTest
+{
+    private final Clock fixed = Clock.fixed(Instant.parse("2026-10-18T12:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void testFixedLengthAndOrdered()
+    {
+        final TimeOrderedMessageIdGenerator generator = new TimeOrderedMessageIdGenerator(3, fixed);
+
+        // More than fits in one millisecond
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+        {
+            ids.add(generator.get());
+        }
+
+        for (int i = 1; i < ids.size(); i++)
+        {
+            assertThat(ids.get(i).length()).isEqualTo(KfkaMessage.MESSAGE_ID_LENGTH);
+            assertThat(ids.get(i).compareTo(ids.get(i - 1))).isGreaterThan(0);
+        }
+    }
+
+    @Test
+    void testOrderedOverTime()
+    {
+        final String earlier = new TimeOrderedMessageIdGenerator(200, Clock.fixed(Instant.parse("2021-01-01T00:00:00Z"), ZoneOffset.UTC)).get();
+        final String later = new TimeOrderedMessageIdGenerator(1, fixed).get();
+        assertThat(later.compareTo(earlier)).isGreaterThan(0);
+    }
+
+    @Test
+    void testNodesDoNotCollide()
+    {
+        final String a = new TimeOrderedMessageIdGenerator(1, fixed).get();
+        final String b = new TimeOrderedMessageIdGenerator(2, fixed).get();
+        assertThat(a).isNotEqualTo(b);
+    }
+
+    @Test
+    void testUniqueUnderContention() throws InterruptedException
+    {
+        final TimeOrderedMessageIdGenerator generator = new TimeOrderedMessageIdGenerator(0);
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final int threads = 4;
+        final int perThread = 20_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            executor.execute(() ->
+            {
+                for (int i = 0; i < perThread; i++)
+                {
+                    ids.add(generator.get());
+                }
+                latch.countDown();
+            });
+        }
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(ids).hasSize(threads * perThread);
+    }
+}
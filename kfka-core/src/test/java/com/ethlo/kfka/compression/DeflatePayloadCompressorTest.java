@@ -0,0 +1,70 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class DeflatePayloadCompressorTest
+{
+    private final PayloadCompressor compressor = new DeflatePayloadCompressor();
+
+    @Test
+    void testRoundTripEdgeCases()
+    {
+        assertRoundTrip(new byte[0]);
+        assertRoundTrip(new byte[]{42});
+        assertRoundTrip("a".repeat(10_000).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testTruncated()
+    {
+        final byte[] compressed = compressor.compress("hello hello hello hello hello".getBytes(StandardCharsets.US_ASCII));
+        assertThatThrownBy(() -> compressor.decompress(Arrays.copyOf(compressed, compressed.length - 1))).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void testInflatesBeyondDeclaredLength()
+    {
+        final byte[] compressed = compressor.compress("hello hello hello hello hello".getBytes(StandardCharsets.US_ASCII));
+        ByteArrays.writeIntBigEndian(compressed, 0, 5);
+        assertThatThrownBy(() -> compressor.decompress(compressed)).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void testTrailingData()
+    {
+        final byte[] compressed = compressor.compress("hello hello hello hello hello".getBytes(StandardCharsets.US_ASCII));
+        assertThatThrownBy(() -> compressor.decompress(Arrays.copyOf(compressed, compressed.length + 1))).isInstanceOf(UncheckedIOException.class);
+    }
+
+    private void assertRoundTrip(byte[] data)
+    {
+        assertThat(Arrays.equals(compressor.decompress(compressor.compress(data)), data)).isTrue();
+    }
+}
@@ -20,6 +20,18 @@ package com.ethlo.kfka.compression;
  * #L%
  */
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 import org.junit.jupiter.api.Test;
 
 class GzipPayloadCompressorTest
@@ -32,4 +44,41 @@ class GzipPayloadCompressorTest
         final byte[] compressed = compressor.compress(data);
         final byte[] decompressed = compressor.decompress(compressed);
     }
+
+    @Test
+    void testCompatibleWithStreamFormat() throws IOException
+    {
+        final byte[] data = "{\"userId\":123,\"type\":\"message\"}".repeat(20).getBytes(StandardCharsets.UTF_8);
+        final PayloadCompressor compressor = new GzipPayloadCompressor();
+
+        // As written by earlier versions
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        new DataOutputStream(bout).writeInt(data.length);
+        try (final GZIPOutputStream gzip = new GZIPOutputStream(bout))
+        {
+            gzip.write(data);
+        }
+        assertThat(Arrays.equals(compressor.decompress(bout.toByteArray()), data)).isTrue();
+
+        final byte[] compressed = compressor.compress(data);
+        final byte[] decompressed = new GZIPInputStream(new ByteArrayInputStream(compressed, 4, compressed.length - 4)).readAllBytes();
+        assertThat(Arrays.equals(decompressed, data)).isTrue();
+    }
+
+    @Test
+    void testOffsetAndByteBuffer()
+    {
+        final byte[] data = "xxhello hello hello helloxx".getBytes(StandardCharsets.US_ASCII);
+        final byte[] expected = Arrays.copyOfRange(data, 2, data.length - 2);
+        for (final PayloadCompressor compressor : new PayloadCompressor[]{new GzipPayloadCompressor(), new DeflatePayloadCompressor(), new Lz4PayloadCompressor()})
+        {
+            final byte[] compressed = compressor.compress(data, 2, data.length - 4);
+            assertThat(Arrays.equals(compressor.decompress(compressed), expected)).isTrue();
+
+            final ByteBuffer direct = ByteBuffer.allocateDirect(compressed.length).put(compressed).flip();
+            final ByteBuffer decompressed = compressor.decompress(direct);
+            assertThat(Arrays.equals(decompressed.array(), expected)).isTrue();
+            assertThat(direct.remaining()).isEqualTo(0);
+        }
+    }
 }
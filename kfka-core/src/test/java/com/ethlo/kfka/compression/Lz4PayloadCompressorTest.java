@@ -0,0 +1,105 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class Lz4PayloadCompressorTest
+{
+    private final PayloadCompressor compressor = new Lz4PayloadCompressor();
+
+    @Test
+    void testRoundTripEdgeCases()
+    {
+        assertRoundTrip(new byte[0]);
+        assertRoundTrip(new byte[]{42});
+        assertRoundTrip("0123456789abc".getBytes(StandardCharsets.US_ASCII));
+        // Overlapping match
+        assertRoundTrip("a".repeat(10_000).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testRoundTripRandom()
+    {
+        final Random random = new Random(1);
+        for (int i = 0; i < 1_000; i++)
+        {
+            final byte[] data = new byte[random.nextInt(5_000)];
+            for (int j = 0; j < data.length; j++)
+            {
+                // Mix of incompressible and repetitive runs
+                data[j] = j > 16 && random.nextBoolean() ? data[j - 1 - random.nextInt(16)] : (byte) random.nextInt();
+            }
+            assertRoundTrip(data);
+        }
+    }
+
+    @Test
+    void testCompressesJson()
+    {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 50; i++)
+        {
+            sb.append("{\"userId\":").append(i).append(",\"type\":\"message\",\"topic\":\"chat\"},");
+        }
+        final byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+        final byte[] compressed = compressor.compress(data);
+        assertThat(compressed.length).isLessThan(data.length / 3);
+        assertRoundTrip(data);
+    }
+
+    @Test
+    void testMalformed()
+    {
+        final byte[] compressed = compressor.compress("hello hello hello hello hello".getBytes(StandardCharsets.US_ASCII));
+        assertThatThrownBy(() -> compressor.decompress(Arrays.copyOf(compressed, compressed.length - 3))).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void testRejectsImplausibleLength()
+    {
+        final byte[] compressed = compressor.compress("hello".getBytes(StandardCharsets.US_ASCII));
+        compressed[0] = 0x7f;
+        assertThatThrownBy(() -> compressor.decompress(compressed)).isInstanceOf(UncheckedIOException.class);
+
+        compressed[0] = (byte) 0x80;
+        assertThatThrownBy(() -> compressor.decompress(compressed)).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void testRoundTripHighlyCompressible()
+    {
+        assertRoundTrip(new byte[1 << 20]);
+    }
+
+    private void assertRoundTrip(byte[] data)
+    {
+        assertThat(Arrays.equals(compressor.decompress(compressor.compress(data)), data)).isTrue();
+    }
+}
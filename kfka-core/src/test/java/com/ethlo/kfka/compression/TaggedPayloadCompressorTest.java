@@ -0,0 +1,100 @@
+package com.ethlo.kfka.compression;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TaggedPayloadCompressorTest
+{
+    private final byte[] json = "{\"userId\":123,\"type\":\"message\",\"topic\":\"chat\"}".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testSmallPayloadStoredAsIs()
+    {
+        final TaggedPayloadCompressor compressor = new TaggedPayloadCompressor(PayloadCodec.LZ4);
+        final byte[] data = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+        final byte[] stored = compressor.compress(data);
+        assertThat(TaggedPayloadCompressor.getCodec(stored)).isEqualTo(PayloadCodec.NONE);
+        assertThat(stored.length).isEqualTo(data.length + 1);
+        assertThat(Arrays.equals(compressor.decompress(stored), data)).isTrue();
+    }
+
+    @Test
+    void testIncompressiblePayloadStoredAsIs()
+    {
+        final byte[] data = new byte[20_000];
+        new Random(1).nextBytes(data);
+        final TaggedPayloadCompressor compressor = new TaggedPayloadCompressor(PayloadCodec.DEFLATE);
+        final byte[] stored = compressor.compress(data);
+        assertThat(TaggedPayloadCompressor.getCodec(stored)).isEqualTo(PayloadCodec.NONE);
+        assertThat(Arrays.equals(compressor.decompress(stored), data)).isTrue();
+    }
+
+    @Test
+    void testReadsMixedCodecs()
+    {
+        final TaggedPayloadCompressor lz4 = new TaggedPayloadCompressor(PayloadCodec.LZ4);
+        final byte[] fromLz4 = lz4.compress(json);
+        final byte[] fromDeflate = new TaggedPayloadCompressor(PayloadCodec.DEFLATE).compress(json);
+        final byte[] fromGzip = new GzipPayloadCompressor().compress(json);
+        assertThat(TaggedPayloadCompressor.getCodec(fromLz4)).isEqualTo(PayloadCodec.LZ4);
+        assertThat(TaggedPayloadCompressor.getCodec(fromDeflate)).isEqualTo(PayloadCodec.DEFLATE);
+        assertThat(TaggedPayloadCompressor.getCodec(fromGzip)).isEqualTo(PayloadCodec.GZIP);
+
+        for (final byte[] stored : new byte[][]{fromLz4, fromDeflate, fromGzip})
+        {
+            assertThat(Arrays.equals(lz4.decompress(stored), json)).isTrue();
+        }
+    }
+
+    @Test
+    void testUnknownTag()
+    {
+        final TaggedPayloadCompressor compressor = new TaggedPayloadCompressor(PayloadCodec.LZ4);
+        assertThatThrownBy(() -> compressor.decompress(new byte[]{42, 1, 2})).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    void testReadsLargeLegacyGzip()
+    {
+        // From 16 MB on, the first byte of the length prefix is no longer the gzip tag
+        final byte[] data = new byte[(1 << 24) + 1];
+        data[data.length - 1] = 1;
+        final byte[] legacy = new GzipPayloadCompressor().compress(data);
+        assertThat(legacy[0]).isEqualTo(PayloadCodec.NONE.getTag());
+
+        final TaggedPayloadCompressor compressor = new TaggedPayloadCompressor(PayloadCodec.LZ4);
+        assertThat(TaggedPayloadCompressor.getCodec(legacy)).isEqualTo(PayloadCodec.GZIP);
+        assertThat(Arrays.equals(compressor.decompress(legacy), data)).isTrue();
+
+        // Corrupt data fails rather than being returned as a stored payload
+        legacy[legacy.length - 9] ^= 1;
+        assertThatThrownBy(() -> compressor.decompress(legacy)).isInstanceOf(UncheckedIOException.class);
+    }
+}
@@ -0,0 +1,101 @@
+package com.ethlo.kfka.metrics;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+import com.ethlo.kfka.CollectingListener;
+import com.ethlo.kfka.KfkaConfig;
+import com.ethlo.kfka.KfkaManager;
+import com.ethlo.kfka.KfkaManagerImpl;
+import com.ethlo.kfka.KfkaPredicate;
+import com.ethlo.kfka.persistence.RingBufferKfkaMessageStore;
+
+class SimpleKfkaMetricsTest
+{
+    @Test
+    void testHistogramPercentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++)
+        {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+
+        assertThat(histogram.getCount()).isEqualTo(100L);
+        assertThat(histogram.getMaxNanos()).isEqualTo(1_000_000L);
+        assertThat(histogram.getPercentileNanos(50)).isEqualTo(1_023L);
+        assertThat(histogram.getPercentileNanos(100)).isEqualTo(1_000_000L);
+    }
+
+    @Test
+    void testNoopDoesNotReadClock()
+    {
+        assertThat(KfkaMetrics.NOOP.startTimer()).isEqualTo(0L);
+        assertThat(KfkaMetrics.NOOP.elapsed(KfkaMetrics.NOOP.startTimer())).isEqualTo(0L);
+    }
+
+    @Test
+    void testManagerReportsListenersDispatchesAndReplays()
+    {
+        final SimpleKfkaMetrics metrics = new SimpleKfkaMetrics();
+        final AtomicLong ids = new AtomicLong();
+        final KfkaManager<CustomKfkaMessage> manager = new KfkaManagerImpl<>(
+                new RingBufferKfkaMessageStore<>(16, Duration.ZERO),
+                () -> String.format("%06d", ids.incrementAndGet()),
+                new KfkaConfig().metrics(metrics));
+
+        final CollectingListener<CustomKfkaMessage> chat = new CollectingListener<>();
+        final CollectingListener<CustomKfkaMessage> all = new CollectingListener<>();
+        manager.addListener(chat, new KfkaPredicate().topic("chat"));
+        manager.addListener(all, new KfkaPredicate());
+        assertThat(metrics.getListenerCounts()).isEqualTo(Map.of("chat", 1L, SimpleKfkaMetrics.ALL_TOPICS, 1L));
+
+        manager.add(message("chat"));
+        manager.add(message("other"));
+        assertThat(metrics.getDispatchLatency().getCount()).isEqualTo(3L);
+
+        manager.removeListener(chat);
+        assertThat(metrics.getListenerCounts()).isEqualTo(Map.of(SimpleKfkaMetrics.ALL_TOPICS, 1L));
+
+        manager.addListener(new CollectingListener<>(), new KfkaPredicate(), 10);
+        assertThat(metrics.getReplayLatency().getCount()).isEqualTo(1L);
+        assertThat(metrics.getReplayedRows()).isEqualTo(2L);
+    }
+
+    private CustomKfkaMessage message(String topic)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(1)
+                .topic(topic)
+                .type("mytype")
+                .payload("payload")
+                .build();
+    }
+}
@@ -0,0 +1,213 @@
+package com.ethlo.kfka.persistence;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+import com.ethlo.kfka.KfkaMessageListener;
+import com.ethlo.kfka.KfkaPredicate;
+import com.ethlo.kfka.compression.GzipPayloadCompressor;
+
+class CachingKfkaMessageStoreTest
+{
+    private final AtomicInteger backingReads = new AtomicInteger();
+    private final RingBufferKfkaMessageStore<CustomKfkaMessage> backing = new RingBufferKfkaMessageStore<>(64, Duration.ZERO)
+    {
+        @Override
+        public int sendAfter(String messageId, KfkaPredicate predicate, KfkaMessageListener<CustomKfkaMessage> l)
+        {
+            backingReads.incrementAndGet();
+            return super.sendAfter(messageId, predicate, l);
+        }
+
+        @Override
+        public Optional<String> getMessageIdForRewind(KfkaPredicate predicate, int offset)
+        {
+            backingReads.incrementAndGet();
+            return super.getMessageIdForRewind(predicate, offset);
+        }
+    };
+
+    private CustomKfkaMessage message(int id, String topic, String payload)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(id)
+                .messageId(String.format("%06d", id))
+                .topic(topic)
+                .type("mytype")
+                .payload(payload)
+                .build();
+    }
+
+    private void add(CachingKfkaMessageStore<CustomKfkaMessage> store, int count)
+    {
+        for (int i = 1; i <= count; i++)
+        {
+            store.addAll(List.of(message(i, i % 2 == 0 ? "even" : "odd", "payload" + i)));
+        }
+    }
+
+    private List<String> after(CachingKfkaMessageStore<CustomKfkaMessage> store, String messageId, KfkaPredicate predicate)
+    {
+        final List<String> ids = new ArrayList<>();
+        store.sendAfter(messageId, predicate, msg -> ids.add(msg.getMessageId()));
+        return ids;
+    }
+
+    @Test
+    void testServesRecentMessagesFromMemory()
+    {
+        final CachingKfkaMessageStore<CustomKfkaMessage> store = new CachingKfkaMessageStore<>(backing, 100, 1 << 20, Duration.ZERO);
+        add(store, 5);
+
+        assertThat(after(store, "000002", new KfkaPredicate())).containsExactly("000003", "000004", "000005");
+        assertThat(after(store, "000001", new KfkaPredicate().topic("even"))).containsExactly("000002", "000004");
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate(), 2)).isEqualTo(Optional.of("000004"));
+        assertThat(backingReads.get()).isEqualTo(0);
+        assertThat(backing.size()).isEqualTo(5L);
+    }
+
+    @Test
+    void testFallsThroughBeforeCachedWindow()
+    {
+        final CachingKfkaMessageStore<CustomKfkaMessage> store = new CachingKfkaMessageStore<>(backing, 3, 1 << 20, Duration.ZERO);
+        add(store, 5);
+
+        assertThat(after(store, "000002", new KfkaPredicate())).containsExactly("000003", "000004", "000005");
+        assertThat(backingReads.get()).isEqualTo(0);
+
+        assertThat(after(store, "000001", new KfkaPredicate())).containsExactly("000002", "000003", "000004", "000005");
+        assertThat(backingReads.get()).isEqualTo(1);
+
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate(), 4)).isEqualTo(Optional.of("000002"));
+        assertThat(backingReads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testBoundedByBytes()
+    {
+        final CachingKfkaMessageStore<CustomKfkaMessage> store = new CachingKfkaMessageStore<>(backing, 100, 3_000, Duration.ZERO);
+        for (int i = 1; i <= 4; i++)
+        {
+            store.addAll(List.of(message(i, "chat", "x".repeat(1_000))));
+        }
+
+        assertThat(after(store, "000002", new KfkaPredicate())).containsExactly("000003", "000004");
+        assertThat(backingReads.get()).isEqualTo(0);
+        assertThat(after(store, "000001", new KfkaPredicate())).containsExactly("000002", "000003", "000004");
+        assertThat(backingReads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testBoundedByCompressedSize()
+    {
+        final CachingKfkaMessageStore<CustomKfkaMessage> store = new CachingKfkaMessageStore<>(backing, 100, 3_000, Duration.ZERO);
+        final GzipPayloadCompressor compressor = new GzipPayloadCompressor();
+        for (int i = 1; i <= 4; i++)
+        {
+            final CustomKfkaMessage message = message(i, "chat", "");
+            message.setCompressedPayload(compressor.compress("x".repeat(10_000).getBytes(StandardCharsets.UTF_8)), compressor);
+            store.addAll(List.of(message));
+        }
+
+        // Sized by the compressed payloads, which are not decompressed for that
+        assertThat(after(store, "000001", new KfkaPredicate())).containsExactly("000002", "000003", "000004");
+        assertThat(backingReads.get()).isEqualTo(0);
+    }
+
+    @Test
+    void testConcurrentWritersAreCachedInOrder() throws InterruptedException
+    {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final RingBufferKfkaMessageStore<CustomKfkaMessage> slow = new RingBufferKfkaMessageStore<>(64, Duration.ZERO)
+        {
+            @Override
+            public void addAll(List<CustomKfkaMessage> values)
+            {
+                super.addAll(values);
+                if (values.get(0).getMessageId().equals("000001"))
+                {
+                    writing.countDown();
+                    awaitQuietly(release);
+                }
+            }
+        };
+        final CachingKfkaMessageStore<CustomKfkaMessage> store = new CachingKfkaMessageStore<>(slow, 100, 1 << 20, Duration.ZERO);
+
+        final Thread first = new Thread(() -> store.addAll(List.of(message(1, "chat", "payload1"))));
+        final Thread second = new Thread(() -> store.addAll(List.of(message(2, "chat", "payload2"))));
+        first.start();
+        writing.await(5, TimeUnit.SECONDS);
+
+        // The second write is not held up by the first one
+        second.start();
+        second.join(5_000);
+        assertThat(second.isAlive()).isFalse();
+
+        // While the first one is not cached yet, the second one is not served from the cache alone
+        assertThat(after(store, "000000", new KfkaPredicate())).containsExactly("000001", "000002");
+
+        release.countDown();
+        first.join();
+        assertThat(after(store, "000000", new KfkaPredicate())).containsExactly("000001", "000002");
+        assertThat(after(store, "000001", new KfkaPredicate())).containsExactly("000002");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException exc)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testExistingMessagesAreNotCached()
+    {
+        backing.addAll(List.of(message(1, "chat", "old")));
+        final CachingKfkaMessageStore<CustomKfkaMessage> store = new CachingKfkaMessageStore<>(backing, 100, 1 << 20, Duration.ZERO);
+        store.addAll(List.of(message(2, "chat", "new")));
+
+        assertThat(after(store, "000001", new KfkaPredicate())).containsExactly("000002");
+        assertThat(backingReads.get()).isEqualTo(0);
+
+        final List<String> all = new ArrayList<>();
+        store.sendAll(new KfkaPredicate(), msg -> all.add(msg.getMessageId()));
+        assertThat(all).containsExactly("000001", "000002");
+    }
+}
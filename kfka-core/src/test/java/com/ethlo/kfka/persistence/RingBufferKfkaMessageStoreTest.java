@@ -0,0 +1,234 @@
+package com.ethlo.kfka.persistence;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.acme.CustomKfkaMessage;
+import com.ethlo.kfka.CollectingListener;
+import com.ethlo.kfka.KfkaPredicate;
+
+class RingBufferKfkaMessageStoreTest
+{
+    private final RingBufferKfkaMessageStore<CustomKfkaMessage> store = new RingBufferKfkaMessageStore<>(8, Duration.ofMinutes(30));
+
+    private CustomKfkaMessage message(int id, String topic)
+    {
+        return message(id, topic, OffsetDateTime.now());
+    }
+
+    private CustomKfkaMessage message(int id, String topic, OffsetDateTime timestamp)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessage.CustomKfkaMessageBuilder()
+                .userId(id)
+                .messageId(String.format("%06d", id))
+                .timestamp(timestamp)
+                .topic(topic)
+                .type("mytype")
+                .payload("payload" + id)
+                .build();
+    }
+
+    private List<String> ids(List<CustomKfkaMessage> messages)
+    {
+        return messages.stream().map(CustomKfkaMessage::getMessageId).toList();
+    }
+
+    @Test
+    void testSendAfterAndIncluding()
+    {
+        store.addAll(List.of(message(1, "foo"), message(2, "bar"), message(3, "foo"), message(4, "foo")));
+
+        final CollectingListener<CustomKfkaMessage> after = new CollectingListener<>();
+        assertThat(store.sendAfter("000001", new KfkaPredicate().topic("foo"), after)).isEqualTo(2);
+        assertThat(ids(after.getReceived())).containsExactly("000003", "000004");
+
+        final CollectingListener<CustomKfkaMessage> including = new CollectingListener<>();
+        assertThat(store.sendIncluding("000002", new KfkaPredicate(), including)).isEqualTo(3);
+        assertThat(ids(including.getReceived())).containsExactly("000002", "000003", "000004");
+
+        final CollectingListener<CustomKfkaMessage> unknownTopic = new CollectingListener<>();
+        assertThat(store.sendAfter("000001", new KfkaPredicate().topic("baz"), unknownTopic)).isEqualTo(0);
+    }
+
+    @Test
+    void testUnknownMessageIdComparesIds()
+    {
+        store.addAll(List.of(message(2, "foo"), message(4, "foo"), message(6, "foo")));
+        final CollectingListener<CustomKfkaMessage> l = new CollectingListener<>();
+        store.sendAfter("000003", new KfkaPredicate(), l);
+        assertThat(ids(l.getReceived())).containsExactly("000004", "000006");
+    }
+
+    @Test
+    void testOverwritesOldest()
+    {
+        for (int i = 1; i <= 20; i++)
+        {
+            store.addAll(List.of(message(i, "foo")));
+        }
+
+        assertThat(store.size()).isEqualTo(8L);
+        assertThat(store.getLastKnownId()).hasValue("000020");
+
+        final CollectingListener<CustomKfkaMessage> l = new CollectingListener<>();
+        store.sendAll(new KfkaPredicate(), l);
+        assertThat(ids(l.getReceived())).containsExactly("000013", "000014", "000015", "000016", "000017", "000018", "000019", "000020");
+    }
+
+    @Test
+    void testRejectsInvalidMessagesWithoutBlockingWriters()
+    {
+        final CustomKfkaMessage invalid = message(1, "foo");
+        invalid.setMessageId(null);
+        assertThatThrownBy(() -> store.addAll(List.of(invalid))).isInstanceOf(IllegalArgumentException.class);
+
+        final List<CustomKfkaMessage> tooMany = new ArrayList<>();
+        for (int i = 1; i <= 9; i++)
+        {
+            tooMany.add(message(i, "foo"));
+        }
+        assertThatThrownBy(() -> store.addAll(tooMany)).isInstanceOf(IllegalArgumentException.class);
+
+        store.addAll(List.of(message(2, "foo")));
+        assertThat(store.getLastKnownId()).hasValue("000002");
+        assertThat(store.size()).isEqualTo(1L);
+    }
+
+    @Test
+    void testRewind()
+    {
+        store.addAll(List.of(message(1, "foo"), message(2, "bar"), message(3, "foo"), message(4, "bar")));
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate().topic("bar"), 1)).hasValue("000004");
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate().topic("bar"), 2)).hasValue("000002");
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate().topic("bar"), 100)).hasValue("000002");
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate().topic("baz"), 1)).isEmpty();
+    }
+
+    @Test
+    void testClearExpired()
+    {
+        store.addAll(List.of(message(1, "foo", OffsetDateTime.parse("2000-01-01T00:00:00Z")), message(2, "foo")));
+
+        final CollectingListener<CustomKfkaMessage> l = new CollectingListener<>();
+        store.sendAll(new KfkaPredicate(), l);
+        assertThat(ids(l.getReceived())).containsExactly("000002");
+
+        assertThat(store.size()).isEqualTo(2L);
+        store.clearExpired();
+        assertThat(store.size()).isEqualTo(1L);
+
+        store.clear();
+        assertThat(store.size()).isEqualTo(0L);
+        assertThat(store.getLastKnownId()).isEmpty();
+    }
+
+    @Test
+    void testConcurrentAppend() throws InterruptedException
+    {
+        final RingBufferKfkaMessageStore<CustomKfkaMessage> large = new RingBufferKfkaMessageStore<>(100_000, Duration.ZERO);
+        final int threads = 8;
+        final int perThread = 5_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            final int offset = t * perThread;
+            executor.execute(() ->
+            {
+                for (int i = 1; i <= perThread; i++)
+                {
+                    large.addAll(List.of(message(offset + i, "foo")));
+                }
+                latch.countDown();
+            });
+        }
+        assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        final List<CustomKfkaMessage> received = new ArrayList<>();
+        large.sendAll(new KfkaPredicate(), received::add);
+        final Set<String> unique = new HashSet<>(ids(received));
+        assertThat(received).hasSize(threads * perThread);
+        assertThat(unique).hasSize(threads * perThread);
+    }
+
+    @Test
+    void testConcurrentAppendAcrossLaps() throws InterruptedException
+    {
+        // Writers lap each other constantly, and must never mix the fields of their messages in a slot
+        final RingBufferKfkaMessageStore<CustomKfkaMessage> tiny = new RingBufferKfkaMessageStore<>(4, Duration.ZERO);
+        final int threads = 8;
+        final int perThread = 2_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            final int offset = t * perThread;
+            final String topic = "topic" + t;
+            executor.execute(() ->
+            {
+                for (int i = 1; i <= perThread; i++)
+                {
+                    tiny.addAll(List.of(message(offset + i, topic)));
+                }
+                latch.countDown();
+            });
+        }
+
+        final AtomicInteger mismatches = new AtomicInteger();
+        executor.execute(() ->
+        {
+            while (latch.getCount() > 0)
+            {
+                tiny.sendAll(new KfkaPredicate().topic("topic0"), msg ->
+                {
+                    if (!msg.getTopic().equals("topic0"))
+                    {
+                        mismatches.incrementAndGet();
+                    }
+                });
+            }
+        });
+        assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        assertThat(mismatches.get()).isEqualTo(0);
+        final List<CustomKfkaMessage> received = new ArrayList<>();
+        tiny.sendAll(new KfkaPredicate(), received::add);
+        assertThat(new HashSet<>(ids(received))).hasSize(4);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ethlo.kfka.util;
+
+/*-
+ * #%L
+ * kfka-core
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MergingIteratorTest
+{
+    @Test
+    void testMergesSorted()
+    {
+        final List<String> merged = new ArrayList<>();
+        try (final MergingIterator<String> iter = new MergingIterator<>(List.of(of("a", "d", "e"), of(), of("b", "c", "f")), Comparator.naturalOrder()))
+        {
+            iter.forEachRemaining(merged::add);
+        }
+        assertThat(merged).containsExactly("a", "b", "c", "d", "e", "f");
+    }
+
+    private CloseableIterator<String> of(String... values)
+    {
+        final Iterator<String> iter = List.of(values).iterator();
+        return new AbstractIterator<>()
+        {
+            @Override
+            protected String computeNext()
+            {
+                return iter.hasNext() ? iter.next() : endOfData();
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces concurrent writes into shared transactions. Writers queue their rows, and whichever writer acquires the
+ * flush lock writes the rows of all queued writers in one go. Writers block until their own rows are committed, and
+ * rows are written in the order the writers were queued. The flushing writer waits up to the window for more rows,
+ * unless rows were already queued behind the previous flush, as those writers have waited long enough. Should a
+ * shared transaction fail, the writers' rows are written again in a transaction each, so that only the writer whose
+ * rows cannot be written gets the failure, as without group commit.
+ *
+ * @param <T> The row type
+ */
+class GroupCommitWriter<T>
+{
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Queue<Request<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingRows = new AtomicInteger();
+    private final long windowNanos;
+    private final int maxRows;
+    private final Consumer<List<T>> transactionWriter;
+    private volatile Thread leader;
+
+    // Guarded by the flush lock
+    private boolean backlog;
+
+    GroupCommitWriter(Duration window, int maxRows, Consumer<List<T>> transactionWriter)
+    {
+        this.windowNanos = window.toNanos();
+        this.maxRows = maxRows;
+        this.transactionWriter = transactionWriter;
+    }
+
+    void write(List<T> rows)
+    {
+        final Request<T> request = new Request<>(rows);
+        pending.add(request);
+        if (pendingRows.addAndGet(rows.size()) >= maxRows)
+        {
+            final Thread waiting = leader;
+            if (waiting != null)
+            {
+                LockSupport.unpark(waiting);
+            }
+        }
+
+        while (!request.done)
+        {
+            flushLock.lock();
+            try
+            {
+                if (!request.done)
+                {
+                    awaitMoreRows();
+                    flush();
+                }
+            }
+            finally
+            {
+                flushLock.unlock();
+            }
+        }
+
+        final Throwable failure = request.failure;
+        if (failure instanceof RuntimeException exc)
+        {
+            throw exc;
+        }
+        else if (failure instanceof Error error)
+        {
+            throw error;
+        }
+        else if (failure != null)
+        {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    private void awaitMoreRows()
+    {
+        if (backlog)
+        {
+            return;
+        }
+
+        final long deadline = System.nanoTime() + windowNanos;
+        leader = Thread.currentThread();
+        try
+        {
+            long remaining;
+            // An interrupted thread cannot park, so flush right away rather than spin
+            while (pendingRows.get() < maxRows && !Thread.currentThread().isInterrupted() && (remaining = deadline - System.nanoTime()) > 0)
+            {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+        finally
+        {
+            leader = null;
+        }
+    }
+
+    private void flush()
+    {
+        final List<Request<T>> batch = new ArrayList<>();
+        final List<T> rows = new ArrayList<>();
+        Request<T> request;
+        while (rows.size() < maxRows && (request = pending.poll()) != null)
+        {
+            batch.add(request);
+            rows.addAll(request.rows);
+        }
+        pendingRows.addAndGet(-rows.size());
+
+        try
+        {
+            final Throwable failure = tryWrite(rows);
+            if (failure != null && batch.size() > 1)
+            {
+                // Find out whose rows failed, as the others must not fail with them
+                for (final Request<T> r : batch)
+                {
+                    r.failure = tryWrite(r.rows);
+                }
+            }
+            else
+            {
+                batch.forEach(r -> r.failure = failure);
+            }
+        }
+        finally
+        {
+            // Always release the writers of this batch, which would otherwise wait forever
+            for (final Request<T> r : batch)
+            {
+                r.done = true;
+            }
+            backlog = !pending.isEmpty();
+        }
+    }
+
+    private Throwable tryWrite(List<T> rows)
+    {
+        try
+        {
+            transactionWriter.accept(rows);
+            return null;
+        }
+        catch (Throwable exc)
+        {
+            return exc;
+        }
+    }
+
+    private static class Request<T>
+    {
+        private final List<T> rows;
+        private volatile Throwable failure;
+        private volatile boolean done;
+
+        private Request(final List<T> rows)
+        {
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.ethlo.kfka.Assert;
+
+class HashTableRouter implements TableRouter
+{
+    private final List<String> tables;
+
+    HashTableRouter(String baseName, int shards)
+    {
+        Assert.isTrue(shards > 0, () -> "shards must be positive");
+        final List<String> names = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++)
+        {
+            names.add(TableRouter.validateTableName(baseName + "_" + i));
+        }
+        this.tables = List.copyOf(names);
+    }
+
+    @Override
+    public String getTable(String topic)
+    {
+        // String.hashCode is specified, so the routing is stable across JVMs
+        return tables.get(Math.floorMod(topic.hashCode(), tables.size()));
+    }
+
+    @Override
+    public Collection<String> getTables()
+    {
+        return tables;
+    }
+}
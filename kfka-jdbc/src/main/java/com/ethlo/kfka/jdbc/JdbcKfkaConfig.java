@@ -0,0 +1,217 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+
+import com.ethlo.kfka.AbstractKfkaConfig;
+import com.ethlo.kfka.Assert;
+import com.ethlo.kfka.compression.NopPayloadCompressor;
+import com.ethlo.kfka.compression.PayloadCompressor;
+
+/**
+ * Configuration for {@link JdbcKfkaMessageStore}.
+ */
+public class JdbcKfkaConfig extends AbstractKfkaConfig<JdbcKfkaConfig>
+{
+    private PayloadCompressor payloadCompressor = new NopPayloadCompressor();
+    private Duration groupCommitWindow;
+    private int groupCommitMaxRows = 1_000;
+    private int replayPageSize = 1_000;
+    private int replayFetchSize = 1_000;
+    private SqlDialect dialect;
+    private TableRouter tableRouter;
+    private Duration timeBucketSize;
+    private Duration counterReconcileInterval = Duration.ZERO;
+
+    public JdbcKfkaConfig()
+    {
+        batchSize(1_000);
+    }
+
+    @Override
+    protected JdbcKfkaConfig self()
+    {
+        return this;
+    }
+
+    public JdbcKfkaConfig payloadCompressor(PayloadCompressor payloadCompressor)
+    {
+        Assert.notNull(payloadCompressor, "payloadCompressor may not be null");
+        this.payloadCompressor = payloadCompressor;
+        return this;
+    }
+
+    public PayloadCompressor getPayloadCompressor()
+    {
+        return payloadCompressor;
+    }
+
+    /**
+     * Coalesce concurrent inserts into a single JDBC batch and transaction. A writer waits up to <code>window</code>
+     * for other writers to join, unless <code>maxRows</code> rows are already pending. Every writer returns once the
+     * transaction holding its messages has committed.
+     *
+     * @param window  The maximum time to wait for more writers. Use 0 to only group writers that arrive while the
+     *                previous transaction is being committed.
+     * @param maxRows The number of pending rows that triggers a commit without further waiting
+     * @return This configuration (for fluent programming)
+     */
+    public JdbcKfkaConfig groupCommit(Duration window, int maxRows)
+    {
+        Assert.notNull(window, "window may not be null");
+        Assert.isTrue(maxRows > 0, () -> "maxRows must be positive");
+        this.groupCommitWindow = window;
+        this.groupCommitMaxRows = maxRows;
+        return this;
+    }
+
+    public boolean isGroupCommit()
+    {
+        return groupCommitWindow != null;
+    }
+
+    public Duration getGroupCommitWindow()
+    {
+        return groupCommitWindow;
+    }
+
+    public int getGroupCommitMaxRows()
+    {
+        return groupCommitMaxRows;
+    }
+
+    /**
+     * The number of rows to read per query when replaying messages. The connection is released between pages, so
+     * a slow listener only holds a connection for as long as it takes to read one page.
+     *
+     * @param replayPageSize The maximum number of rows per page
+     * @return This configuration (for fluent programming)
+     */
+    public JdbcKfkaConfig replayPageSize(int replayPageSize)
+    {
+        Assert.isTrue(replayPageSize > 0, () -> "replayPageSize must be positive");
+        this.replayPageSize = replayPageSize;
+        return this;
+    }
+
+    public int getReplayPageSize()
+    {
+        return replayPageSize;
+    }
+
+    /**
+     * The JDBC fetch size hint used when reading a page of messages.
+     *
+     * @param replayFetchSize The fetch size
+     * @return This configuration (for fluent programming)
+     */
+    public JdbcKfkaConfig replayFetchSize(int replayFetchSize)
+    {
+        Assert.isTrue(replayFetchSize > 0, () -> "replayFetchSize must be positive");
+        this.replayFetchSize = replayFetchSize;
+        return this;
+    }
+
+    public int getReplayFetchSize()
+    {
+        return replayFetchSize;
+    }
+
+    /**
+     * The SQL dialect of the database. If not set, it is detected from the database product name.
+     *
+     * @param dialect The dialect
+     * @return This configuration (for fluent programming)
+     */
+    public JdbcKfkaConfig dialect(SqlDialect dialect)
+    {
+        this.dialect = dialect;
+        return this;
+    }
+
+    public SqlDialect getDialect()
+    {
+        return dialect;
+    }
+
+    /**
+     * Route topics to separate tables, for instance to keep high-volume topics from slowing down queries and
+     * eviction of the others. Defaults to a single table named after {@link #getName()}.
+     *
+     * @param tableRouter The table router
+     * @return This configuration (for fluent programming)
+     */
+    public JdbcKfkaConfig tableRouter(TableRouter tableRouter)
+    {
+        this.tableRouter = tableRouter;
+        return this;
+    }
+
+    public TableRouter getTableRouter()
+    {
+        return tableRouter != null ? tableRouter : TableRouter.single(getName());
+    }
+
+    /**
+     * Write messages into one table per time bucket, so expired messages can be removed by dropping whole tables
+     * rather than deleting them row by row. The table given by the {@link #tableRouter(TableRouter) router} is then
+     * only used as the template for the layout of its bucket tables, which are created as needed and named after
+     * the UTC start of the bucket, like <code>kfka_2026101813</code> for hourly buckets.
+     *
+     * @param bucketSize The time span of each table, in whole minutes, typically an hour or a day
+     * @return This configuration (for fluent programming)
+     */
+    public JdbcKfkaConfig timeBuckets(Duration bucketSize)
+    {
+        Assert.notNull(bucketSize, "bucketSize may not be null");
+        Assert.isTrue(bucketSize.toMinutes() > 0 && bucketSize.toSeconds() % 60 == 0 && bucketSize.toNanosPart() == 0, () -> "bucketSize must be a positive whole number of minutes");
+        this.timeBucketSize = bucketSize;
+        return this;
+    }
+
+    public Duration getTimeBucketSize()
+    {
+        return timeBucketSize;
+    }
+
+    /**
+     * Keep message counts per topic and type in memory, so that {@link JdbcKfkaMessageStore#size()} does not need to
+     * count rows. The counts are replaced by the actual ones from the database in the background once they are older
+     * than this, which also picks up the messages written by other stores sharing the tables. Until then, and for
+     * messages written while the rows are counted, the counts are approximate. Off by default.
+     *
+     * @param counterReconcileInterval The maximum age of the counts. Use 0 to always count rows instead.
+     * @return This configuration (for fluent programming)
+     */
+    public JdbcKfkaConfig counterReconcileInterval(Duration counterReconcileInterval)
+    {
+        Assert.notNull(counterReconcileInterval, "counterReconcileInterval may not be null");
+        Assert.isTrue(!counterReconcileInterval.isNegative(), () -> "counterReconcileInterval may not be negative");
+        this.counterReconcileInterval = counterReconcileInterval;
+        return this;
+    }
+
+    public Duration getCounterReconcileInterval()
+    {
+        return counterReconcileInterval;
+    }
+}
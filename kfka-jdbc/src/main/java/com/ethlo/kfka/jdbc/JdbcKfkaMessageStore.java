@@ -21,21 +21,31 @@ package com.ethlo.kfka.jdbc;
  */
 
 import java.io.Serializable;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.BiConsumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -43,153 +53,208 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ethlo.kfka.KfkaMessage;
+import com.ethlo.kfka.KfkaMessageHeader;
 import com.ethlo.kfka.KfkaMessageListener;
 import com.ethlo.kfka.KfkaPredicate;
-import com.ethlo.kfka.compression.NopPayloadCompressor;
 import com.ethlo.kfka.compression.PayloadCompressor;
+import com.ethlo.kfka.metrics.KfkaMetrics;
 import com.ethlo.kfka.persistence.KfkaMessageStore;
 import com.ethlo.kfka.util.AbstractIterator;
+import com.ethlo.kfka.util.MergingIterator;
 import com.ethlo.kfka.util.ReflectionUtil;
 
 public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageStore<T>
 {
     private static final Logger logger = LoggerFactory.getLogger(JdbcKfkaMessageStore.class);
+    private static final List<String> HEADER_COLUMNS = List.of("message_id", "type", "topic", "timestamp");
 
     private final RowMapper<T> mapper;
     private final Duration ttl;
-    private final DataSource dataSource;
     private final SimpleJdbcTemplate simpleTpl;
     private final PayloadCompressor payloadCompressor;
     private final int batchSize;
+    private final GroupCommitWriter<T> groupCommitWriter;
+    private final int replayPageSize;
+    private final int replayFetchSize;
+    private final SqlDialect dialect;
+    private final KfkaMetrics metrics;
+    private final TableRouter tableRouter;
+    private final TimeBuckets timeBuckets;
+    private final MessageCounters counters;
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private ExecutorService countersExecutor;
+    private boolean closed;
+    private volatile List<String> propertyColumns;
 
     public JdbcKfkaMessageStore(DataSource dataSource, RowMapper<T> mapper, Duration ttl)
     {
-        this(dataSource, mapper, ttl, new NopPayloadCompressor(), 1_000);
+        this(dataSource, mapper, new JdbcKfkaConfig().ttl(ttl));
     }
 
     public JdbcKfkaMessageStore(DataSource dataSource, RowMapper<T> mapper, Duration ttl, final PayloadCompressor payloadCompressor, final int batchSize)
     {
-        this.dataSource = dataSource;
+        this(dataSource, mapper, new JdbcKfkaConfig().ttl(ttl).payloadCompressor(payloadCompressor).batchSize(batchSize));
+    }
+
+    public JdbcKfkaMessageStore(DataSource dataSource, RowMapper<T> mapper, JdbcKfkaConfig config)
+    {
         this.mapper = mapper;
-        this.ttl = ttl;
-        this.payloadCompressor = payloadCompressor;
+        this.ttl = config.getTtl();
+        this.payloadCompressor = config.getPayloadCompressor();
         this.simpleTpl = new SimpleJdbcTemplate(dataSource);
-        this.batchSize = batchSize;
+        this.batchSize = config.getBatchSize();
+        this.groupCommitWriter = config.isGroupCommit()
+                ? new GroupCommitWriter<>(config.getGroupCommitWindow(), config.getGroupCommitMaxRows(), this::insertInTransaction)
+                : null;
+        this.replayPageSize = config.getReplayPageSize();
+        this.replayFetchSize = config.getReplayFetchSize();
+        this.dialect = config.getDialect() != null ? config.getDialect() : SqlDialect.detect(dataSource);
+        this.metrics = config.getMetrics();
+        this.tableRouter = config.getTableRouter();
+        this.timeBuckets = config.getTimeBucketSize() != null ? new TimeBuckets(simpleTpl, dialect, config.getTimeBucketSize()) : null;
+        this.counters = !config.getCounterReconcileInterval().isZero() ? new MessageCounters(config.getCounterReconcileInterval()) : null;
     }
 
     private long getTtlTs()
     {
-        return System.currentTimeMillis() - ttl.toMillis();
+        // A ttl of zero means the messages are kept forever
+        return ttl.isZero() ? 0 : System.currentTimeMillis() - ttl.toMillis();
     }
 
-    private AbstractIterator<T> fromMessageIdIterator(final String lastSeenMessageId, final KfkaPredicate predicate)
+    private AbstractIterator<T> fromMessageIdIterator(final String messageId, final boolean including, final KfkaPredicate predicate)
     {
-        final long ttlTs = getTtlTs();
+        return fromMessageIdIterator(messageId, including, predicate, replayPageSize);
+    }
 
-        final List<Object> params = new ArrayList<>();
-        final StringBuilder sql = new StringBuilder("SELECT * FROM kfka");
+    private AbstractIterator<T> fromMessageIdIterator(final String messageId, final boolean including, final KfkaPredicate predicate, final int pageSize)
+    {
+        final RowMapper<T> rowMapper = rs ->
+        {
+            final T e = mapper.mapRow(rs);
+            e.setCompressedPayload(e.getPayload(), payloadCompressor);
+            return e;
+        };
+        return mergedIterator(predicate, table -> pagedIterator(table, messageId, including, predicate, pageSize, "*", rowMapper, KfkaMessage::getMessageId), KfkaMessage::getMessageId);
+    }
 
-        // Filter out too old
-        sql.append(" WHERE timestamp > ?");
+    /**
+     * The tables that may hold messages matching the predicate.
+     */
+    private Collection<String> getTables(KfkaPredicate predicate)
+    {
+        return getTables(predicate, getTtlTs());
+    }
 
-        // Continue from this message
-        if (lastSeenMessageId != null)
-        {
-            sql.append(" AND message_id >= ?");
-        }
+    private Collection<String> getTables(KfkaPredicate predicate, long fromTimestamp)
+    {
+        final Collection<String> tables = predicate.getTopic() != null ? List.of(tableRouter.getTable(predicate.getTopic())) : tableRouter.getTables();
+        return timeBuckets != null ? getBucketTables(tables, fromTimestamp) : tables;
+    }
 
-        addFilterPredicates(predicate, params, sql);
+    /**
+     * All tables holding messages, including the expired ones.
+     */
+    private Collection<String> getAllTables()
+    {
+        return timeBuckets != null ? getBucketTables(tableRouter.getTables(), 0) : tableRouter.getTables();
+    }
 
-        sql.append(" ORDER BY message_id");
+    private List<String> getBucketTables(Collection<String> templates, long fromTimestamp)
+    {
+        final List<String> result = new ArrayList<>();
+        for (final String template : templates)
+        {
+            result.addAll(timeBuckets.getTables(template, fromTimestamp));
+        }
+        return result;
+    }
 
-        Connection conn;
-        PreparedStatement stmt;
-        ResultSet rs;
-        try
+    private <R> AbstractIterator<R> mergedIterator(final KfkaPredicate predicate, final Function<String, AbstractIterator<R>> tableIterator, final Function<R, String> messageIdOf)
+    {
+        final Collection<String> tables = getTables(predicate);
+        if (tables.size() == 1)
         {
-            conn = dataSource.getConnection();
-            stmt = conn.prepareStatement(sql.toString());
-            int index = 1;
+            return tableIterator.apply(tables.iterator().next());
+        }
 
-            stmt.setLong(index++, ttlTs);
+        // Each table is read in message id order, so merge them on the way out
+        final List<AbstractIterator<R>> sources = tables.stream().map(tableIterator).toList();
+        return new MergingIterator<>(sources, Comparator.comparing(messageIdOf));
+    }
 
-            if (lastSeenMessageId != null)
-            {
-                stmt.setString(index++, lastSeenMessageId);
-            }
+    private <R> AbstractIterator<R> pagedIterator(final String table, final String messageId, final boolean including, final KfkaPredicate predicate,
+                                                  final int pageSize, final String columns, final RowMapper<R> rowMapper, final Function<R, String> messageIdOf)
+    {
+        final List<Object> filterParams = new ArrayList<>();
+        final StringBuilder filter = new StringBuilder();
+        addFilterPredicates(predicate, filterParams, filter);
+        final long ttlTs = getTtlTs();
 
-            for (int i = 0; i < params.size(); i++)
-            {
-                stmt.setString(i + index, params.get(i).toString());
-            }
-            rs = stmt.executeQuery();
-        }
-        catch (SQLException exc)
+        return new AbstractIterator<>()
         {
-            throw new RuntimeSqlException(exc);
-        }
+            private Iterator<R> page = Collections.emptyIterator();
+            private String cursor = messageId;
+            private boolean first = true;
+            private boolean lastPage;
 
-        return new AbstractIterator<T>()
-        {
             @Override
-            protected T computeNext()
+            protected R computeNext()
             {
-                try
+                if (!page.hasNext() && !lastPage)
                 {
-                    if (rs.next())
-                    {
-                        final T e = mapper.mapRow(rs);
-                        e.setPayload(payloadCompressor.decompress(e.getPayload()));
-                        logger.trace("Returning: {}", e);
-                        return e;
-                    }
-                    else
+                    final String cursorOperator = first && including ? ">=" : ">";
+                    final List<R> rows = fetchPage(table, columns, ttlTs, cursor, cursorOperator, filter, filterParams, pageSize, rowMapper);
+                    lastPage = rows.size() < pageSize;
+                    first = false;
+                    page = rows.iterator();
+                    if (!rows.isEmpty())
                     {
-                        logger.trace("Exhausted iterator");
+                        cursor = messageIdOf.apply(rows.get(rows.size() - 1));
                     }
                 }
-                catch (SQLException exc)
+
+                if (page.hasNext())
                 {
-                    throw new RuntimeSqlException(exc);
+                    final R e = page.next();
+                    logger.trace("Returning: {}", e);
+                    return e;
                 }
 
+                logger.trace("Exhausted iterator");
                 return endOfData();
             }
 
             @Override
             public void close()
             {
-                logger.debug("Closing iterator");
-                try
-                {
-                    rs.close();
-                    stmt.close();
-                    conn.close();
-                }
-                catch (SQLException exc)
-                {
-                    throw new RuntimeSqlException(exc);
-                }
+                // No resources are held between pages
             }
         };
     }
 
-    private Optional<byte[]> findMessage(String lastSeenMessageId, long ttlTs)
+    private <R> List<R> fetchPage(String table, String columns, long ttlTs, String cursor, String cursorOperator, CharSequence filter, List<Object> filterParams, int pageSize, RowMapper<R> rowMapper)
     {
-        return simpleTpl.queryForObject("""
-                SELECT message_id
-                FROM kfka
-                WHERE message_id = ?
-                AND timestamp > ?""", List.of(lastSeenMessageId, ttlTs), byte[].class);
-    }
+        final StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(table);
+        final List<Object> params = new ArrayList<>(filterParams.size() + 4);
 
-    private long countAvailableAfter(String lastSeenMessageId)
-    {
-        return simpleTpl.queryForObject("""
-                SELECT count(1)
-                FROM kfka
-                WHERE message_id >= ?
-                AND timestamp > ?""", List.of(lastSeenMessageId, getTtlTs()), Long.class).orElseThrow();
+        // Filter out too old
+        sql.append(" WHERE timestamp > ?");
+        params.add(ttlTs);
+
+        // Continue from this message
+        if (cursor != null)
+        {
+            sql.append(" AND message_id ").append(cursorOperator).append(" ?");
+            params.add(cursor);
+        }
+
+        sql.append(filter);
+        params.addAll(filterParams);
+
+        sql.append(" ORDER BY message_id");
+        dialect.appendLimit(sql, params, pageSize, 0);
+
+        return simpleTpl.queryByRow(sql.toString(), params, replayFetchSize, rowMapper);
     }
 
     private void addFilterPredicates(KfkaPredicate predicate, List<Object> params, StringBuilder sql)
@@ -222,26 +287,85 @@ public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageS
             return;
         }
 
-        final T value = values.get(0);
-        final String sql = getInsertSql(value);
+        if (groupCommitWriter != null)
+        {
+            groupCommitWriter.write(values);
+            return;
+        }
+
+        final long start = metrics.startTimer();
+        groupBySql(values).forEach((sql, rows) -> insert(Map.of(sql, rows), bySql -> bySql.forEach((s, r) ->
+                simpleTpl.insertBatch(s, r.iterator(), this::setInsertParams, batchSize))));
+        metrics.recordInsert(values.size(), metrics.elapsed(start));
+        count(values);
+    }
 
-        final BiConsumer<T, SimpleJdbcTemplate.ParameterSink> sinkConsumer = (v, sink) ->
+    private void insert(Map<String, List<T>> bySql, Consumer<Map<String, List<T>>> writer)
+    {
+        try
         {
-            final List<Object> params = getInsertParams(v);
-            for (int i = 0; i < params.size(); i++)
+            writer.accept(bySql);
+        }
+        catch (RuntimeSqlException exc)
+        {
+            // Another store may have dropped a bucket table since it was looked up, so build the statements again
+            if (timeBuckets == null || !timeBuckets.forgetDropped())
             {
-                sink.setObject(i + 1, params.get(i));
+                throw exc;
             }
-        };
+            logger.info("Retrying insert as bucket tables have been dropped by another store");
+            writer.accept(groupBySql(bySql.values().stream().flatMap(List::stream).toList()));
+        }
+    }
 
-        simpleTpl.insertBatch(sql, values.iterator(), sinkConsumer, batchSize);
+    private void count(List<T> values)
+    {
+        if (counters != null)
+        {
+            for (final T value : values)
+            {
+                counters.add(value.getTopic(), value.getType(), 1);
+            }
+        }
+    }
+
+    private Map<String, List<T>> groupBySql(List<T> values)
+    {
+        // Messages may go to different tables, and messages of different types may have different queryable properties
+        final Map<String, List<T>> bySql = new LinkedHashMap<>();
+        for (final T value : values)
+        {
+            bySql.computeIfAbsent(getInsertSql(value), sql -> new ArrayList<>()).add(value);
+        }
+        return bySql;
+    }
+
+    private void insertInTransaction(List<T> values)
+    {
+        final Map<String, List<T>> bySql = groupBySql(values);
+        final long start = metrics.startTimer();
+        insert(bySql, statements -> simpleTpl.inTransaction(conn -> statements.forEach((sql, rows) ->
+                simpleTpl.insertBatch(conn, sql, rows.iterator(), this::setInsertParams, batchSize))));
+        metrics.recordInsert(values.size(), metrics.elapsed(start));
+        count(values);
+    }
+
+    private void setInsertParams(T value, SimpleJdbcTemplate.ParameterSink sink)
+    {
+        final List<Object> params = getInsertParams(value);
+        for (int i = 0; i < params.size(); i++)
+        {
+            sink.setObject(i + 1, params.get(i));
+        }
     }
 
     private String getInsertSql(T value)
     {
         final Collection<String> extraProps = value.getQueryableProperties();
         final String extraColsStr = (extraProps.isEmpty() ? "" : (", " + collectionToCommaDelimitedString(extraProps)));
-        return "INSERT INTO kfka (message_id, type, topic, timestamp, payload" + extraColsStr + ")"
+        final String table = tableRouter.getTable(value.getTopic());
+        final String target = timeBuckets != null ? timeBuckets.getTable(table, value.getTimestamp().toInstant().toEpochMilli()) : table;
+        return "INSERT INTO " + target + " (message_id, type, topic, timestamp, payload" + extraColsStr + ")"
                 + " VALUES(" + repeat(5 + extraProps.size()) + ")";
     }
 
@@ -265,7 +389,103 @@ public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageS
     @Override
     public long size()
     {
-        return this.simpleTpl.queryForObject("SELECT COUNT(1) FROM kfka", Collections.emptyList(), Long.class).orElseThrow();
+        return size(new KfkaPredicate());
+    }
+
+    @Override
+    public long size(KfkaPredicate predicate)
+    {
+        if (counters != null && predicate.getPropertyMatch().isEmpty())
+        {
+            if (counters.needsReconciliation(System.currentTimeMillis()) && reconciling.compareAndSet(false, true))
+            {
+                reconcileInBackground();
+            }
+
+            // Answer from the current counts rather than waiting for the rows to be counted, once there are any
+            if (counters.isLoaded())
+            {
+                return counters.count(predicate.getTopic(), predicate.getType());
+            }
+        }
+
+        final StringBuilder filter = new StringBuilder(" WHERE 1 = 1");
+        final List<Object> params = new ArrayList<>();
+        addFilterPredicates(predicate, params, filter);
+        long size = 0;
+        for (final String table : getTables(predicate, 0))
+        {
+            size += simpleTpl.queryForObject("SELECT COUNT(1) FROM " + table + filter, params, Long.class).orElseThrow();
+        }
+        return size;
+    }
+
+    private synchronized void reconcileInBackground()
+    {
+        if (closed)
+        {
+            reconciling.set(false);
+            return;
+        }
+
+        if (countersExecutor == null)
+        {
+            countersExecutor = Executors.newSingleThreadExecutor(r ->
+            {
+                final Thread thread = new Thread(r, "kfka-counters");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        countersExecutor.execute(this::reconcileCountersSafely);
+    }
+
+    /**
+     * Stop the background reconciliation of message counts, if any. The store can still be used. Counts that were
+     * already loaded are kept up to date by this store's own writes and evictions, but are no longer reconciled.
+     */
+    public synchronized void close()
+    {
+        closed = true;
+        if (countersExecutor != null)
+        {
+            countersExecutor.shutdownNow();
+            countersExecutor = null;
+        }
+    }
+
+    private void reconcileCountersSafely()
+    {
+        try
+        {
+            reconcileCounters();
+        }
+        catch (RuntimeException exc)
+        {
+            // The counts stay stale, so the next call to size() tries again
+            logger.warn("Reconciliation of message counts failed", exc);
+        }
+        finally
+        {
+            reconciling.set(false);
+        }
+    }
+
+    private void reconcileCounters()
+    {
+        final long now = System.currentTimeMillis();
+        if (!counters.needsReconciliation(now))
+        {
+            return;
+        }
+
+        final Map<MessageCounters.Key, Long> actual = new HashMap<>();
+        for (final String table : getAllTables())
+        {
+            simpleTpl.queryByRow("SELECT topic, type, COUNT(1) FROM " + table + " GROUP BY topic, type", Collections.emptyList(), rs ->
+                    actual.merge(new MessageCounters.Key(rs.getString(1), rs.getString(2)), rs.getLong(3), Long::sum));
+        }
+        counters.reset(actual, now);
     }
 
     private List<Object> getInsertParams(KfkaMessage value)
@@ -275,7 +495,7 @@ public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageS
         result.add(value.getType());
         result.add(value.getTopic());
         result.add(value.getTimestamp().toInstant().toEpochMilli());
-        result.add(payloadCompressor.compress(value.getPayload()));
+        result.add(value.getCompressedPayload(payloadCompressor));
 
         for (String propName : value.getQueryableProperties())
         {
@@ -288,21 +508,23 @@ public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageS
     @Override
     public void clear()
     {
-        simpleTpl.update("TRUNCATE TABLE kfka", Collections.emptyList());
+        for (final String table : getAllTables())
+        {
+            simpleTpl.update("TRUNCATE TABLE " + table, Collections.emptyList());
+        }
+
+        if (counters != null)
+        {
+            counters.reset(Map.of(), System.currentTimeMillis());
+        }
     }
 
     @Override
     public int sendAfter(final String messageId, final KfkaPredicate predicate, final KfkaMessageListener<T> l)
     {
         Objects.requireNonNull(messageId, "messageId cannot be null");
-        try (final AbstractIterator<T> iter = fromMessageIdIterator(messageId, predicate))
+        try (final AbstractIterator<T> iter = fromMessageIdIterator(messageId, false, predicate))
         {
-            if (iter.hasNext())
-            {
-                // Skip self
-                iter.next();
-            }
-
             int sent = 0;
             while (iter.hasNext())
             {
@@ -314,44 +536,207 @@ public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageS
         }
     }
 
+    @Override
+    public int sendAfter(final String messageId, final KfkaPredicate predicate, final int limit, final KfkaMessageListener<T> l)
+    {
+        // Read no more rows than requested, so a consumer pulling small pages does not cause large reads
+        try (final AbstractIterator<T> iter = fromMessageIdIterator(messageId, false, predicate, Math.min(limit, replayPageSize)))
+        {
+            int sent = 0;
+            while (sent < limit && iter.hasNext())
+            {
+                l.onMessage(iter.next());
+                sent++;
+            }
+            return sent;
+        }
+    }
+
     @Override
     public Optional<String> getMessageIdForRewind(final KfkaPredicate predicate, final int rewind)
     {
-        final StringBuilder sql = new StringBuilder("SELECT message_id FROM kfka WHERE timestamp > ?");
-        final List<Object> params = new LinkedList<>();
-        params.add(getTtlTs());
-        addFilterPredicates(predicate, params, sql);
-        sql.append(" ORDER BY message_id DESC");
-        return simpleTpl.query(sql.toString(), params, rs ->
+        if (rewind <= 0)
+        {
+            return Optional.empty();
+        }
+
+        final StringBuilder filter = new StringBuilder(" WHERE timestamp > ?");
+        final List<Object> filterParams = new ArrayList<>();
+        filterParams.add(getTtlTs());
+        addFilterPredicates(predicate, filterParams, filter);
+
+        final Collection<String> tables = getTables(predicate);
+        if (tables.size() == 1)
         {
-            String firstFound = null;
-            int count = 0;
-            try
+            final String table = tables.iterator().next();
+            final Optional<String> messageId = findNewestIdAtOffset(table, filter, filterParams, rewind - 1);
+            if (messageId.isPresent())
             {
-                while (rs.next() && count++ < rewind)
-                {
-                    firstFound = rs.getString(1);
-                }
+                return messageId;
             }
-            catch (SQLException exc)
+
+            // Fewer messages than requested, so start from the oldest one
+            return queryForMessageId("SELECT MIN(message_id) FROM " + table + filter, filterParams);
+        }
+
+        // The answer is no older than the rewind-th newest message of any table having that many, and no table has
+        // more than rewind messages from there on, so only those need to be compared here
+        String lowerBound = null;
+        for (final String table : tables)
+        {
+            final Optional<String> candidate = findNewestIdAtOffset(table, filter, filterParams, rewind - 1);
+            if (candidate.isPresent() && (lowerBound == null || candidate.get().compareTo(lowerBound) > 0))
+            {
+                lowerBound = candidate.get();
+            }
+        }
+
+        final List<String> messageIds = new ArrayList<>();
+        for (final String table : tables)
+        {
+            final StringBuilder sql = new StringBuilder("SELECT message_id FROM ").append(table).append(filter);
+            final List<Object> params = new ArrayList<>(filterParams);
+            if (lowerBound != null)
             {
-                throw new RuntimeSqlException(exc);
+                sql.append(" AND message_id >= ?");
+                params.add(lowerBound);
             }
+            sql.append(" ORDER BY message_id DESC");
+            dialect.appendLimit(sql, params, rewind, 0);
+            messageIds.addAll(simpleTpl.queryByRow(sql.toString(), params, rs -> rs.getString(1)));
+        }
+
+        if (messageIds.isEmpty())
+        {
+            return Optional.empty();
+        }
+        messageIds.sort(Comparator.reverseOrder());
+        return Optional.of(messageIds.get(Math.min(rewind, messageIds.size()) - 1));
+    }
+
+    private Optional<String> findNewestIdAtOffset(String table, CharSequence filter, List<Object> filterParams, int offset)
+    {
+        // Let the database walk the index backwards, rather than streaming all rows to count them here
+        final StringBuilder sql = new StringBuilder("SELECT message_id FROM ").append(table).append(filter).append(" ORDER BY message_id DESC");
+        final List<Object> params = new ArrayList<>(filterParams);
+        dialect.appendLimit(sql, params, 1, offset);
+        return queryForMessageId(sql.toString(), params);
+    }
 
-            return Optional.ofNullable(firstFound);
-        });
+    private Optional<String> queryForMessageId(String sql, List<Object> params)
+    {
+        // Read explicitly as string, as the column may be binary
+        final List<String> result = simpleTpl.queryByRow(sql, params, rs -> rs.getString(1));
+        return result.isEmpty() ? Optional.empty() : Optional.ofNullable(result.get(0));
     }
 
     @Override
     public void clearExpired()
     {
-        simpleTpl.update("DELETE FROM kfka WHERE timestamp < ?", Collections.singletonList(System.currentTimeMillis() - ttl.toMillis()));
+        if (ttl.isZero())
+        {
+            return;
+        }
+        final long start = metrics.startTimer();
+        final long ttlTs = getTtlTs();
+        if (timeBuckets != null)
+        {
+            // Expired messages in the remaining buckets are filtered out when reading
+            int dropped = 0;
+            for (final String table : tableRouter.getTables())
+            {
+                dropped += timeBuckets.dropExpired(table, ttlTs);
+            }
+            logger.debug("Dropped {} expired bucket tables", dropped);
+            invalidateCounters();
+            metrics.recordEviction(-1, metrics.elapsed(start));
+            return;
+        }
+
+        long deleted = 0;
+        for (final String table : tableRouter.getTables())
+        {
+            deleted += simpleTpl.update("DELETE FROM " + table + " WHERE timestamp < ?", Collections.singletonList(ttlTs));
+        }
+        metrics.recordEviction(deleted, metrics.elapsed(start));
+        if (deleted > 0)
+        {
+            invalidateCounters();
+        }
+    }
+
+    @Override
+    public long clearExpired(int maxRows)
+    {
+        if (ttl.isZero())
+        {
+            return 0;
+        }
+
+        if (timeBuckets != null)
+        {
+            // Dropping whole buckets is cheap regardless of their size
+            clearExpired();
+            return 0;
+        }
+
+        final long start = metrics.startTimer();
+        final long ttlTs = getTtlTs();
+        long deleted = 0;
+        for (final String table : tableRouter.getTables())
+        {
+            if (deleted >= maxRows)
+            {
+                break;
+            }
+            deleted += deleteExpiredChunk(table, ttlTs, (int) (maxRows - deleted));
+        }
+        metrics.recordEviction(deleted, metrics.elapsed(start));
+        return deleted;
+    }
+
+    private long deleteExpiredChunk(String table, long ttlTs, int limit)
+    {
+        // Find the key range of the oldest expired rows, so the delete only locks that range of the primary key
+        final StringBuilder sql = new StringBuilder("SELECT message_id, topic, type FROM ").append(table).append(" WHERE timestamp < ? ORDER BY message_id");
+        final List<Object> params = new ArrayList<>(List.of(ttlTs));
+        dialect.appendLimit(sql, params, limit, 0);
+        final List<String[]> rows = simpleTpl.queryByRow(sql.toString(), params, rs -> new String[]{rs.getString(1), rs.getString(2), rs.getString(3)});
+        if (rows.isEmpty())
+        {
+            return 0;
+        }
+
+        final long deleted = simpleTpl.update("DELETE FROM " + table + " WHERE message_id >= ? AND message_id <= ? AND timestamp < ?",
+                List.of(rows.get(0)[0], rows.get(rows.size() - 1)[0], ttlTs));
+
+        if (counters != null)
+        {
+            if (deleted == rows.size())
+            {
+                rows.forEach(row -> counters.add(row[1], row[2], -1));
+            }
+            else
+            {
+                // Rows were added or removed by others in the meantime, so it is not known which ones were deleted
+                counters.invalidate();
+            }
+        }
+        return deleted;
+    }
+
+    private void invalidateCounters()
+    {
+        if (counters != null)
+        {
+            counters.invalidate();
+        }
     }
 
     @Override
     public void sendAll(final KfkaPredicate predicate, final KfkaMessageListener<T> l)
     {
-        try (final AbstractIterator<T> iter = fromMessageIdIterator(null, predicate))
+        try (final AbstractIterator<T> iter = fromMessageIdIterator(null, false, predicate))
         {
             while (iter.hasNext())
             {
@@ -364,7 +749,84 @@ public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageS
     @Override
     public Optional<String> getLastKnownId()
     {
-        return simpleTpl.queryForObject("SELECT MAX(message_id) FROM kfka", List.of(), String.class);
+        String last = null;
+        for (final String table : getAllTables())
+        {
+            final Optional<String> max = queryForMessageId("SELECT MAX(message_id) FROM " + table, List.of());
+            if (max.isPresent() && (last == null || max.get().compareTo(last) > 0))
+            {
+                last = max.get();
+            }
+        }
+        return Optional.ofNullable(last);
+    }
+
+    @Override
+    public int sendHeadersAfter(final String messageId, final KfkaPredicate predicate, final Consumer<KfkaMessageHeader> consumer)
+    {
+        int sent = 0;
+        try (final AbstractIterator<KfkaMessageHeader> iter = mergedIterator(predicate, table -> headerIterator(table, messageId, predicate), KfkaMessageHeader::getMessageId))
+        {
+            while (iter.hasNext())
+            {
+                consumer.accept(iter.next());
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    private AbstractIterator<KfkaMessageHeader> headerIterator(final String table, final String messageId, final KfkaPredicate predicate)
+    {
+        final List<String> propertyColumns = getPropertyColumns();
+        final String columns = Stream.concat(HEADER_COLUMNS.stream(), propertyColumns.stream()).collect(Collectors.joining(", "));
+        final RowMapper<KfkaMessageHeader> rowMapper = rs ->
+        {
+            final Map<String, Serializable> properties = new HashMap<>();
+            for (final String column : propertyColumns)
+            {
+                properties.put(column, (Serializable) rs.getObject(column));
+            }
+            return new KfkaMessageHeader(rs.getString("message_id"), rs.getString("topic"), rs.getString("type"),
+                    OffsetDateTime.ofInstant(Instant.ofEpochMilli(rs.getLong("timestamp")), ZoneOffset.UTC), properties);
+        };
+        return pagedIterator(table, messageId, false, predicate, replayPageSize, columns, rowMapper, KfkaMessageHeader::getMessageId);
+    }
+
+    /**
+     * The columns other than the fixed ones, which hold the queryable properties. All tables have the same layout,
+     * so they are read from the first table of the router, which exists even when writing to time buckets.
+     */
+    private List<String> getPropertyColumns()
+    {
+        final List<String> columns = propertyColumns;
+        if (columns != null)
+        {
+            return columns;
+        }
+        final String table = tableRouter.getTables().iterator().next();
+        return propertyColumns =
+                simpleTpl.query("SELECT * FROM " + table + " WHERE 1 = 0", Collections.emptyList(), rs ->
+                {
+                    try
+                    {
+                        final ResultSetMetaData metaData = rs.getMetaData();
+                        final List<String> result = new ArrayList<>();
+                        for (int i = 1; i <= metaData.getColumnCount(); i++)
+                        {
+                            final String column = metaData.getColumnLabel(i);
+                            if (HEADER_COLUMNS.stream().noneMatch(column::equalsIgnoreCase) && !"payload".equalsIgnoreCase(column))
+                            {
+                                result.add(column);
+                            }
+                        }
+                        return List.copyOf(result);
+                    }
+                    catch (SQLException exc)
+                    {
+                        throw new RuntimeSqlException(exc);
+                    }
+                });
     }
 
     @Override
@@ -372,7 +834,7 @@ public class JdbcKfkaMessageStore<T extends KfkaMessage> implements KfkaMessageS
     {
         Objects.requireNonNull(messageId, "messageId cannot be null");
         int sent = 0;
-        try (final AbstractIterator<T> iter = fromMessageIdIterator(messageId, predicate))
+        try (final AbstractIterator<T> iter = fromMessageIdIterator(messageId, true, predicate))
         {
             while (iter.hasNext())
             {
@@ -0,0 +1,57 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class MappedTableRouter implements TableRouter
+{
+    private final Map<String, String> tablesByTopic;
+    private final String defaultTable;
+    private final List<String> tables;
+
+    MappedTableRouter(Map<String, String> tablesByTopic, String defaultTable)
+    {
+        this.tablesByTopic = Map.copyOf(tablesByTopic);
+        this.defaultTable = TableRouter.validateTableName(defaultTable);
+
+        final Set<String> all = new LinkedHashSet<>();
+        all.add(defaultTable);
+        tablesByTopic.values().stream().map(TableRouter::validateTableName).sorted().forEach(all::add);
+        this.tables = List.copyOf(all);
+    }
+
+    @Override
+    public String getTable(String topic)
+    {
+        return tablesByTopic.getOrDefault(topic, defaultTable);
+    }
+
+    @Override
+    public Collection<String> getTables()
+    {
+        return tables;
+    }
+}
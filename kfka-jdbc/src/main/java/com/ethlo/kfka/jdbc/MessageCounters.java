@@ -0,0 +1,103 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Message counts per topic and type, kept up to date as messages are written and evicted, so that the size of the
+ * store can be read without counting rows. The counts are replaced by the actual ones from the database when they are
+ * older than the reconciliation interval, or when an operation could not tell which messages it removed. Messages
+ * written by other stores sharing the tables are only counted from the next reconciliation on.
+ * <p>
+ * The counts are approximate: messages written while the rows are counted may be counted twice or not at all, until
+ * the next reconciliation.
+ */
+class MessageCounters
+{
+    private final Map<Key, LongAdder> counts = new ConcurrentHashMap<>();
+    private final long reconcileIntervalMillis;
+    private volatile long reconciledAt;
+    private volatile boolean stale = true;
+
+    MessageCounters(Duration reconcileInterval)
+    {
+        this.reconcileIntervalMillis = reconcileInterval.toMillis();
+    }
+
+    void add(String topic, String type, long delta)
+    {
+        counts.computeIfAbsent(new Key(topic, type), k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * @param topic The topic to count, or <code>null</code> for all topics
+     * @param type  The type to count, or <code>null</code> for all types
+     * @return The number of messages
+     */
+    long count(String topic, String type)
+    {
+        long total = 0;
+        for (final Map.Entry<Key, LongAdder> e : counts.entrySet())
+        {
+            if ((topic == null || topic.equals(e.getKey().topic())) && (type == null || type.equals(e.getKey().type())))
+            {
+                total += e.getValue().sum();
+            }
+        }
+        return Math.max(0, total);
+    }
+
+    boolean isLoaded()
+    {
+        return reconciledAt != 0;
+    }
+
+    boolean needsReconciliation(long now)
+    {
+        return stale || now - reconciledAt >= reconcileIntervalMillis;
+    }
+
+    void invalidate()
+    {
+        stale = true;
+    }
+
+    void reset(Map<Key, Long> actual, long now)
+    {
+        counts.keySet().retainAll(actual.keySet());
+        actual.forEach((key, count) ->
+        {
+            final LongAdder adder = counts.computeIfAbsent(key, k -> new LongAdder());
+            adder.reset();
+            adder.add(count);
+        });
+        reconciledAt = now;
+        stale = false;
+    }
+
+    record Key(String topic, String type)
+    {
+    }
+}
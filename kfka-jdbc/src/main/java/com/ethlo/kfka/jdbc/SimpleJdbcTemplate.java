@@ -34,6 +34,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import javax.sql.DataSource;
@@ -118,6 +119,62 @@ public class SimpleJdbcTemplate
         }
     }
 
+    public <T> int insertBatch(Connection conn, String sql, Iterator<T> parameters, BiConsumer<T, ParameterSink> parameterSetter, final int batchSize)
+    {
+        return doInsertBatch(conn, sql, parameters, parameterSetter, batchSize, null, null);
+    }
+
+    /**
+     * Run the callback with a connection in a single transaction. The transaction is committed if the callback
+     * returns normally, otherwise rolled back.
+     *
+     * @param callback The work to perform
+     */
+    public void inTransaction(Consumer<Connection> callback)
+    {
+        try (final Connection conn = dataSource.getConnection())
+        {
+            final boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try
+            {
+                callback.accept(conn);
+                conn.commit();
+            }
+            catch (RuntimeException exc)
+            {
+                conn.rollback();
+                throw exc;
+            }
+            finally
+            {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
+    /**
+     * Run the callback with a connection, for instance to read the database metadata.
+     *
+     * @param callback The work to perform
+     * @return The result of the callback
+     */
+    public <T> T withConnection(Function<Connection, T> callback)
+    {
+        try (final Connection conn = dataSource.getConnection())
+        {
+            return callback.apply(conn);
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
     public <K extends Number, T> int insertBatch(String sql, Iterator<T> parameters, BiConsumer<T, ParameterSink> parameterSetter, final int batchSize, final BiConsumer<T, K> identityCallback, Class<K> keyType)
     {
         try (final Connection conn = dataSource.getConnection())
@@ -132,7 +189,12 @@ public class SimpleJdbcTemplate
 
     public <T> List<T> queryByRow(String sql, List<Object> params, RowMapper<T> mapper)
     {
-        return query(sql, params, rs ->
+        return queryByRow(sql, params, 1, mapper);
+    }
+
+    public <T> List<T> queryByRow(String sql, List<Object> params, int fetchSize, RowMapper<T> mapper)
+    {
+        return query(sql, params, fetchSize, rs ->
         {
             final List<T> result = new LinkedList<>();
             try
@@ -152,6 +214,11 @@ public class SimpleJdbcTemplate
     }
 
     public <T> T query(final String sql, List<Object> params, Function<ResultSet, T> callback)
+    {
+        return query(sql, params, 1, callback);
+    }
+
+    public <T> T query(final String sql, List<Object> params, int fetchSize, Function<ResultSet, T> callback)
     {
         try (final Connection conn = dataSource.getConnection();
              final PreparedStatement stat = setParams(conn.prepareStatement(sql,
@@ -159,7 +226,7 @@ public class SimpleJdbcTemplate
                      CONCUR_READ_ONLY
              ), params))
         {
-            stat.setFetchSize(1);
+            stat.setFetchSize(fetchSize);
             try (final ResultSet rs = stat.executeQuery())
             {
                 return callback.apply(rs);
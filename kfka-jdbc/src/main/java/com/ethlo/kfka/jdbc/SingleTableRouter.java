@@ -0,0 +1,48 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.List;
+
+class SingleTableRouter implements TableRouter
+{
+    private final String table;
+    private final List<String> tables;
+
+    SingleTableRouter(String table)
+    {
+        this.table = TableRouter.validateTableName(table);
+        this.tables = List.of(table);
+    }
+
+    @Override
+    public String getTable(String topic)
+    {
+        return table;
+    }
+
+    @Override
+    public Collection<String> getTables()
+    {
+        return tables;
+    }
+}
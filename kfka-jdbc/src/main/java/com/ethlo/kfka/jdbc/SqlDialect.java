@@ -0,0 +1,146 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+/**
+ * The SQL variations between databases that kfka needs to care about.
+ */
+public enum SqlDialect
+{
+    MYSQL,
+    H2,
+    POSTGRESQL,
+    ORACLE(true),
+    SQL_SERVER(true),
+
+    /**
+     * SQL:2008 row limiting, for databases not listed otherwise
+     */
+    ANSI(true);
+
+    private final boolean fetchFirst;
+
+    SqlDialect()
+    {
+        this(false);
+    }
+
+    SqlDialect(boolean fetchFirst)
+    {
+        this.fetchFirst = fetchFirst;
+    }
+
+    /**
+     * Append a row limit to a query that ends with an <code>ORDER BY</code> clause.
+     *
+     * @param sql    The query
+     * @param params The query parameters, to which the limit parameters are added
+     * @param limit  The maximum number of rows to return
+     * @param offset The number of rows to skip
+     */
+    public void appendLimit(StringBuilder sql, List<Object> params, int limit, long offset)
+    {
+        if (fetchFirst)
+        {
+            sql.append(" OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+            params.add(offset);
+            params.add(limit);
+        }
+        else
+        {
+            sql.append(" LIMIT ?");
+            params.add(limit);
+            if (offset > 0)
+            {
+                sql.append(" OFFSET ?");
+                params.add(offset);
+            }
+        }
+    }
+
+    /**
+     * The statements that create an empty table with the same columns and primary key as the template table.
+     * Where the database can only copy the columns, the primary key on <code>message_id</code> is added afterwards,
+     * and other indexes of the template are not copied.
+     *
+     * @param table    The table to create
+     * @param template The table to copy the layout from
+     * @return The statements to execute in order
+     */
+    public List<String> createTableLike(String table, String template)
+    {
+        final String addPrimaryKey = "ALTER TABLE " + table + " ADD PRIMARY KEY (message_id)";
+        return switch (this)
+        {
+            case MYSQL -> List.of("CREATE TABLE IF NOT EXISTS " + table + " LIKE " + template);
+            case POSTGRESQL -> List.of("CREATE TABLE IF NOT EXISTS " + table + " (LIKE " + template + " INCLUDING ALL)");
+            case SQL_SERVER -> List.of("SELECT * INTO " + table + " FROM " + template + " WHERE 1 = 0", addPrimaryKey);
+            // H2 does not copy NOT NULL constraints, which a primary key requires
+            case H2 -> List.of("CREATE TABLE " + table + " AS SELECT * FROM " + template + " WHERE 1 = 0", "ALTER TABLE " + table + " ALTER COLUMN message_id SET NOT NULL", addPrimaryKey);
+            default -> List.of("CREATE TABLE " + table + " AS SELECT * FROM " + template + " WHERE 1 = 0", addPrimaryKey);
+        };
+    }
+
+    public static SqlDialect detect(DataSource dataSource)
+    {
+        try (final Connection conn = dataSource.getConnection())
+        {
+            return fromProductName(conn.getMetaData().getDatabaseProductName());
+        }
+        catch (SQLException exc)
+        {
+            throw new RuntimeSqlException(exc);
+        }
+    }
+
+    static SqlDialect fromProductName(String productName)
+    {
+        final String name = productName.toLowerCase(Locale.ROOT);
+        if (name.contains("mysql") || name.contains("mariadb"))
+        {
+            return MYSQL;
+        }
+        else if (name.contains("h2"))
+        {
+            return H2;
+        }
+        else if (name.contains("postgres"))
+        {
+            return POSTGRESQL;
+        }
+        else if (name.contains("oracle"))
+        {
+            return ORACLE;
+        }
+        else if (name.contains("sql server"))
+        {
+            return SQL_SERVER;
+        }
+        return ANSI;
+    }
+}
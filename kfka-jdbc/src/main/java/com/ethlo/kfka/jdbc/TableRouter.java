@@ -0,0 +1,91 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.ethlo.kfka.Assert;
+
+/**
+ * Decides which table the messages of a topic are stored in. Every table must have the same layout.
+ */
+public interface TableRouter
+{
+    /**
+     * @param topic The topic of a message
+     * @return The table holding messages of the topic
+     */
+    String getTable(String topic);
+
+    /**
+     * @return All tables, in a stable order
+     */
+    Collection<String> getTables();
+
+    /**
+     * Store all messages in one table.
+     *
+     * @param table The table name
+     * @return The router
+     */
+    static TableRouter single(String table)
+    {
+        return new SingleTableRouter(table);
+    }
+
+    /**
+     * Store the given topics in their own tables, and the rest in a default table.
+     *
+     * @param tablesByTopic The table of each explicitly routed topic
+     * @param defaultTable  The table of all other topics
+     * @return The router
+     */
+    static TableRouter mapping(Map<String, String> tablesByTopic, String defaultTable)
+    {
+        return new MappedTableRouter(tablesByTopic, defaultTable);
+    }
+
+    /**
+     * Spread the topics over <code>shards</code> tables named <code>baseName_0</code> to
+     * <code>baseName_{shards-1}</code> by the hash of the topic. Changing the number of shards moves topics between
+     * tables, so existing data will no longer be found.
+     *
+     * @param baseName The prefix of the table names
+     * @param shards   The number of tables
+     * @return The router
+     */
+    static TableRouter hash(String baseName, int shards)
+    {
+        return new HashTableRouter(baseName, shards);
+    }
+
+    /**
+     * Table names are inserted in SQL as is, so only allow plain, optionally schema qualified, identifiers.
+     */
+    static String validateTableName(String table)
+    {
+        Assert.notNull(table, "table may not be null");
+        Assert.isTrue(Pattern.matches("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?", table), () -> "Invalid table name: " + table);
+        return table;
+    }
+}
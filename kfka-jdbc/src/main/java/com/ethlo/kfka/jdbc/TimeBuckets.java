@@ -0,0 +1,322 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ethlo.kfka.Assert;
+
+/**
+ * Splits a table into one table per time bucket, named after the table and the UTC start of the bucket, like
+ * <code>kfka_2026101813</code> for hourly buckets. The table itself is only used as the template for the layout of
+ * the bucket tables, which are created when the first message for them is written. Expired messages are removed by
+ * dropping the buckets that have ended before the ttl, rather than deleting them row by row.
+ */
+class TimeBuckets
+{
+    private static final Logger logger = LoggerFactory.getLogger(TimeBuckets.class);
+    private static final long REFRESH_INTERVAL_MILLIS = 1_000;
+
+    private final SimpleJdbcTemplate simpleTpl;
+    private final SqlDialect dialect;
+    private final long bucketMillis;
+    private final DateTimeFormatter formatter;
+    private final int suffixLength;
+    private final Map<String, NavigableMap<Long, String>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastRefresh = new ConcurrentHashMap<>();
+
+    TimeBuckets(SimpleJdbcTemplate simpleTpl, SqlDialect dialect, Duration bucketSize)
+    {
+        Assert.isTrue(bucketSize.toMinutes() > 0 && bucketSize.toSeconds() % 60 == 0 && bucketSize.toNanosPart() == 0, () -> "bucketSize must be a positive whole number of minutes");
+        this.simpleTpl = simpleTpl;
+        this.dialect = dialect;
+        this.bucketMillis = bucketSize.toMillis();
+
+        // Only as fine-grained as the bucket size requires, so the names stay readable
+        final String pattern = bucketSize.toHoursPart() == 0 && bucketSize.toMinutesPart() == 0 ? "uuuuMMdd" : bucketSize.toMinutesPart() == 0 ? "uuuuMMddHH" : "uuuuMMddHHmm";
+        this.formatter = new DateTimeFormatterBuilder()
+                .appendPattern(pattern)
+                .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+                .toFormatter(Locale.ROOT)
+                .withZone(ZoneOffset.UTC);
+        this.suffixLength = pattern.length();
+    }
+
+    long getBucketStart(long timestamp)
+    {
+        return Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+    }
+
+    String getTableName(String template, long bucketStart)
+    {
+        return template + "_" + formatter.format(Instant.ofEpochMilli(bucketStart));
+    }
+
+    /**
+     * @return The start of the bucket held by the table, or <code>null</code> if the name is not that of a bucket of
+     * the template table. The comparison ignores case, as the database may have changed it.
+     */
+    Long parseBucketStart(String template, String table)
+    {
+        final String prefix = template + "_";
+        if (table.length() != prefix.length() + suffixLength || !table.regionMatches(true, 0, prefix, 0, prefix.length()))
+        {
+            return null;
+        }
+
+        final String suffix = table.substring(prefix.length());
+        if (!suffix.chars().allMatch(Character::isDigit))
+        {
+            return null;
+        }
+
+        try
+        {
+            return LocalDateTime.parse(suffix, formatter).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        catch (DateTimeParseException exc)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * The bucket table for a message with the given timestamp, which is created if it does not exist yet.
+     */
+    String getTable(String template, long timestamp)
+    {
+        final long start = getBucketStart(timestamp);
+        final NavigableMap<Long, String> known = getBuckets(template);
+        final String existing = known.get(start);
+        if (existing != null)
+        {
+            return existing;
+        }
+
+        synchronized (known)
+        {
+            final String table = known.get(start);
+            if (table != null)
+            {
+                return table;
+            }
+            return create(template, start, known);
+        }
+    }
+
+    private String create(String template, long start, NavigableMap<Long, String> known)
+    {
+        final String table = getTableName(template, start);
+        try
+        {
+            for (final String statement : dialect.createTableLike(table, template))
+            {
+                simpleTpl.update(statement, Collections.emptyList());
+            }
+            logger.info("Created bucket table {}", table);
+        }
+        catch (RuntimeSqlException exc)
+        {
+            // Another store may have created it in the meantime
+            if (!refresh(template).containsKey(start))
+            {
+                throw exc;
+            }
+        }
+        known.put(start, table);
+        return table;
+    }
+
+    /**
+     * The bucket tables that may hold messages newer than the given timestamp, oldest first.
+     */
+    List<String> getTables(String template, long fromTimestamp)
+    {
+        NavigableMap<Long, String> known = getBuckets(template);
+        final long from = getBucketStart(fromTimestamp);
+
+        // Pick up buckets created by other stores anywhere in the range, without asking the database every time
+        final long now = System.currentTimeMillis();
+        final long current = getBucketStart(now);
+        final long inRange = (current - from) / bucketMillis + 1;
+        if (inRange > 0 && known.subMap(from, true, current, true).size() < inRange
+                && now - lastRefresh.getOrDefault(template, 0L) > REFRESH_INTERVAL_MILLIS)
+        {
+            known = refresh(template);
+        }
+        return new ArrayList<>(known.tailMap(from, true).values());
+    }
+
+    /**
+     * Drop the bucket tables that only hold messages older than the given timestamp.
+     *
+     * @return The number of tables dropped
+     */
+    int dropExpired(String template, long ttlTs)
+    {
+        final NavigableMap<Long, String> known = refresh(template);
+        int dropped = 0;
+        for (final Map.Entry<Long, String> e : new ArrayList<>(known.headMap(getBucketStart(ttlTs), false).entrySet()))
+        {
+            try
+            {
+                simpleTpl.update("DROP TABLE " + e.getValue(), Collections.emptyList());
+                logger.info("Dropped expired bucket table {}", e.getValue());
+                dropped++;
+            }
+            catch (RuntimeSqlException exc)
+            {
+                // Another store may have dropped it already
+                if (discover(template).containsKey(e.getKey()))
+                {
+                    throw exc;
+                }
+            }
+            known.remove(e.getKey());
+        }
+        return dropped;
+    }
+
+    /**
+     * Forget the bucket tables that other stores have dropped since they were last looked up, so they are created
+     * again when written to.
+     *
+     * @return Whether any were dropped
+     */
+    boolean forgetDropped()
+    {
+        boolean dropped = false;
+        for (final Map.Entry<String, NavigableMap<Long, String>> e : buckets.entrySet())
+        {
+            final Set<Long> before = new HashSet<>(e.getValue().keySet());
+            dropped |= !refresh(e.getKey()).keySet().containsAll(before);
+        }
+        return dropped;
+    }
+
+    /**
+     * All bucket tables, oldest first.
+     */
+    List<String> getAllTables(String template)
+    {
+        return new ArrayList<>(refresh(template).values());
+    }
+
+    private NavigableMap<Long, String> getBuckets(String template)
+    {
+        final NavigableMap<Long, String> known = buckets.get(template);
+        return known != null ? known : refresh(template);
+    }
+
+    private NavigableMap<Long, String> refresh(String template)
+    {
+        final NavigableMap<Long, String> known = buckets.computeIfAbsent(template, t -> new ConcurrentSkipListMap<>());
+        final Map<Long, String> found = discover(template);
+        known.putAll(found);
+        known.keySet().retainAll(found.keySet());
+        lastRefresh.put(template, System.currentTimeMillis());
+        return known;
+    }
+
+    private Map<Long, String> discover(String template)
+    {
+        final int dot = template.lastIndexOf('.');
+        final String schema = dot >= 0 ? template.substring(0, dot) : null;
+        final String name = template.substring(dot + 1);
+
+        return simpleTpl.withConnection(conn ->
+        {
+            try
+            {
+                final DatabaseMetaData metaData = conn.getMetaData();
+                final String escape = metaData.getSearchStringEscape();
+                final Map<Long, String> result = new TreeMap<>();
+
+                // Unquoted names may be stored in upper or lower case, depending on the database
+                for (final String variant : new LinkedHashSet<>(List.of(name, name.toUpperCase(Locale.ROOT), name.toLowerCase(Locale.ROOT))))
+                {
+                    final String schemaPattern = schema == null ? null : matchCase(schema, name, variant);
+                    try (final ResultSet rs = metaData.getTables(null, schemaPattern, escapeLike(variant + "_", escape) + "%", new String[]{"TABLE"}))
+                    {
+                        while (rs.next())
+                        {
+                            final Long start = parseBucketStart(name, rs.getString("TABLE_NAME"));
+                            if (start != null)
+                            {
+                                result.put(start, getTableName(template, start));
+                            }
+                        }
+                    }
+                }
+                return result;
+            }
+            catch (SQLException exc)
+            {
+                throw new RuntimeSqlException(exc);
+            }
+        });
+    }
+
+    private static String matchCase(String value, String original, String variant)
+    {
+        if (variant.equals(original))
+        {
+            return value;
+        }
+        return variant.equals(original.toUpperCase(Locale.ROOT)) ? value.toUpperCase(Locale.ROOT) : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String escapeLike(String value, String escape)
+    {
+        if (escape == null || escape.isEmpty())
+        {
+            // The wildcards match the literal characters too, and the names are checked again afterwards
+            return value;
+        }
+        return value.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+}
@@ -0,0 +1,157 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class GroupCommitWriterTest
+{
+    @Test
+    void testCoalescesConcurrentWriters() throws InterruptedException
+    {
+        final List<List<Integer>> transactions = Collections.synchronizedList(new ArrayList<>());
+        final GroupCommitWriter<Integer> writer = new GroupCommitWriter<>(Duration.ofMillis(50), 1_000, transactions::add);
+
+        final int writers = 20;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        final CountDownLatch done = new CountDownLatch(writers);
+        for (int i = 0; i < writers; i++)
+        {
+            final int value = i;
+            executor.execute(() ->
+            {
+                writer.write(List.of(value * 2, value * 2 + 1));
+                done.countDown();
+            });
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        final List<Integer> written = new ArrayList<>();
+        transactions.forEach(written::addAll);
+        assertThat(written).hasSize(writers * 2);
+        assertThat(transactions.size()).isLessThan(writers);
+
+        // Rows of one writer are kept together and in order
+        for (int i = 0; i < written.size(); i += 2)
+        {
+            assertThat(written.get(i + 1)).isEqualTo(written.get(i) + 1);
+        }
+    }
+
+    @Test
+    void testCommitsWhenMaxRowsReached()
+    {
+        final List<List<Integer>> transactions = new ArrayList<>();
+        final GroupCommitWriter<Integer> writer = new GroupCommitWriter<>(Duration.ofMinutes(1), 2, transactions::add);
+        writer.write(List.of(1, 2));
+        assertThat(transactions).hasSize(1);
+    }
+
+    @Test
+    void testFailurePropagatesToWriter()
+    {
+        final GroupCommitWriter<Integer> writer = new GroupCommitWriter<>(Duration.ZERO, 10, rows ->
+        {
+            throw new IllegalStateException("Failed");
+        });
+        assertThatThrownBy(() -> writer.write(List.of(1))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testInvalidRowsOnlyFailTheirWriter() throws InterruptedException
+    {
+        final List<Integer> committed = Collections.synchronizedList(new ArrayList<>());
+        final GroupCommitWriter<Integer> writer = new GroupCommitWriter<>(Duration.ofMillis(100), 1_000, rows ->
+        {
+            if (rows.contains(-1))
+            {
+                throw new IllegalArgumentException("Invalid row");
+            }
+            committed.addAll(rows);
+        });
+
+        final int writers = 10;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        final CountDownLatch done = new CountDownLatch(writers);
+        final List<Integer> failed = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < writers; i++)
+        {
+            final int value = i == 3 ? -1 : i;
+            executor.execute(() ->
+            {
+                try
+                {
+                    writer.write(List.of(value));
+                }
+                catch (IllegalArgumentException exc)
+                {
+                    failed.add(value);
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        assertThat(failed).containsExactly(-1);
+        assertThat(committed).containsExactlyInAnyOrder(0, 1, 2, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    void testErrorPropagatesToWriter()
+    {
+        final GroupCommitWriter<Integer> writer = new GroupCommitWriter<>(Duration.ZERO, 10, rows ->
+        {
+            throw new AssertionError("Failed");
+        });
+        assertThatThrownBy(() -> writer.write(List.of(1))).isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void testInterruptedWriterDoesNotWaitForWindow()
+    {
+        final List<List<Integer>> transactions = new ArrayList<>();
+        final GroupCommitWriter<Integer> writer = new GroupCommitWriter<>(Duration.ofMinutes(1), 1_000, transactions::add);
+        Thread.currentThread().interrupt();
+        try
+        {
+            writer.write(List.of(1));
+        }
+        finally
+        {
+            assertThat(Thread.interrupted()).isTrue();
+        }
+        assertThat(transactions).hasSize(1);
+    }
+}
@@ -0,0 +1,248 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.acme.CustomKfkaMessage;
+import com.acme.CustomKfkaMessage.CustomKfkaMessageBuilder;
+import com.ethlo.kfka.KfkaPredicate;
+
+/**
+ * Runs the store against H2 with configurations other than the default one of {@link TestCfg}.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = TestCfg.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class JdbcKfkaMessageStoreTest
+{
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcKfkaMessageStore<CustomKfkaMessage> store(JdbcKfkaConfig config)
+    {
+        return new JdbcKfkaMessageStore<>(dataSource, TestCfg.ROW_MAPPER, config);
+    }
+
+    private void createTableLike(String table)
+    {
+        final SimpleJdbcTemplate tpl = new SimpleJdbcTemplate(dataSource);
+        SqlDialect.H2.createTableLike(table, "kfka").forEach(sql -> tpl.update(sql, List.of()));
+    }
+
+    private interface Interceptor
+    {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T intercept(Class<T> type, Object target, Interceptor interceptor)
+    {
+        return type.cast(Proxy.newProxyInstance(JdbcKfkaMessageStoreTest.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> interceptor.invoke(target, method, args)));
+    }
+
+    private static CustomKfkaMessage message(int id, String topic)
+    {
+        return message(id, topic, OffsetDateTime.now());
+    }
+
+    private static CustomKfkaMessage message(int id, String topic, OffsetDateTime timestamp)
+    {
+        return (CustomKfkaMessage) new CustomKfkaMessageBuilder()
+                .userId(id)
+                .messageId(String.format("%06d", id))
+                .topic(topic)
+                .type("mytype")
+                .timestamp(timestamp)
+                .payload("payload" + id)
+                .build();
+    }
+
+    private static List<CustomKfkaMessage> messages(int from, int to, String... topics)
+    {
+        final List<CustomKfkaMessage> result = new ArrayList<>();
+        for (int id = from; id <= to; id++)
+        {
+            result.add(message(id, topics[id % topics.length]));
+        }
+        return result;
+    }
+
+    private static List<String> ids(List<CustomKfkaMessage> messages)
+    {
+        return messages.stream().map(CustomKfkaMessage::getMessageId).toList();
+    }
+
+    @Test
+    void testReplaysAcrossPages()
+    {
+        final JdbcKfkaMessageStore<CustomKfkaMessage> store = store(new JdbcKfkaConfig().replayPageSize(2));
+        store.addAll(messages(1, 7, "foo"));
+
+        final List<CustomKfkaMessage> after = new ArrayList<>();
+        assertThat(store.sendAfter("000001", new KfkaPredicate(), after::add)).isEqualTo(6);
+        assertThat(ids(after)).containsExactly("000002", "000003", "000004", "000005", "000006", "000007");
+
+        final List<CustomKfkaMessage> including = new ArrayList<>();
+        assertThat(store.sendIncluding("000002", new KfkaPredicate(), including::add)).isEqualTo(6);
+        assertThat(ids(including)).containsExactly("000002", "000003", "000004", "000005", "000006", "000007");
+
+        final List<CustomKfkaMessage> all = new ArrayList<>();
+        store.sendAll(new KfkaPredicate(), all::add);
+        assertThat(ids(all)).containsExactly("000001", "000002", "000003", "000004", "000005", "000006", "000007");
+    }
+
+    @Test
+    void testReplaysFilteredAcrossPages()
+    {
+        final JdbcKfkaMessageStore<CustomKfkaMessage> store = store(new JdbcKfkaConfig().replayPageSize(2));
+        store.addAll(messages(1, 9, "foo", "bar"));
+
+        // Only every other row matches, so the pages are filled from non-adjacent rows
+        final List<CustomKfkaMessage> received = new ArrayList<>();
+        assertThat(store.sendIncluding("000003", new KfkaPredicate().topic("bar"), received::add)).isEqualTo(4);
+        assertThat(ids(received)).containsExactly("000003", "000005", "000007", "000009");
+    }
+
+    @Test
+    void testRoutedTables()
+    {
+        createTableLike("kfka_clicks");
+        final JdbcKfkaMessageStore<CustomKfkaMessage> store = store(new JdbcKfkaConfig()
+                .tableRouter(TableRouter.mapping(Map.of("clicks", "kfka_clicks"), "kfka"))
+                .replayPageSize(2));
+        store.addAll(messages(1, 8, "chat", "clicks"));
+
+        // Merged across the tables in message id order
+        final List<CustomKfkaMessage> all = new ArrayList<>();
+        store.sendAll(new KfkaPredicate(), all::add);
+        assertThat(ids(all)).containsExactly("000001", "000002", "000003", "000004", "000005", "000006", "000007", "000008");
+
+        final List<CustomKfkaMessage> clicks = new ArrayList<>();
+        store.sendAfter("000003", new KfkaPredicate().topic("clicks"), clicks::add);
+        assertThat(ids(clicks)).containsExactly("000005", "000007");
+
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate(), 3)).hasValue("000006");
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate(), 100)).hasValue("000001");
+        assertThat(store.getMessageIdForRewind(new KfkaPredicate().topic("clicks"), 2)).hasValue("000005");
+
+        assertThat(store.size()).isEqualTo(8L);
+        assertThat(store.size(new KfkaPredicate().topic("clicks"))).isEqualTo(4L);
+
+        store.clear();
+        assertThat(store.size()).isEqualTo(0L);
+        final List<CustomKfkaMessage> none = new ArrayList<>();
+        store.sendAll(new KfkaPredicate(), none::add);
+        assertThat(none).isEmpty();
+    }
+
+    @Test
+    void testHashRoutedTables()
+    {
+        createTableLike("kfka_0");
+        createTableLike("kfka_1");
+        final JdbcKfkaMessageStore<CustomKfkaMessage> store = store(new JdbcKfkaConfig().tableRouter(TableRouter.hash("kfka", 2)));
+        store.addAll(messages(1, 6, "a", "b", "c"));
+
+        final List<CustomKfkaMessage> all = new ArrayList<>();
+        store.sendAll(new KfkaPredicate(), all::add);
+        assertThat(ids(all)).containsExactly("000001", "000002", "000003", "000004", "000005", "000006");
+
+        final List<CustomKfkaMessage> rewound = new ArrayList<>();
+        store.sendIncluding(store.getMessageIdForRewind(new KfkaPredicate(), 4).orElseThrow(), new KfkaPredicate(), rewound::add);
+        assertThat(ids(rewound)).containsExactly("000003", "000004", "000005", "000006");
+        assertThat(store.size(new KfkaPredicate().topic("b"))).isEqualTo(2L);
+    }
+
+    @Test
+    void testTimeBuckets()
+    {
+        final JdbcKfkaConfig config = new JdbcKfkaConfig().timeBuckets(Duration.ofHours(1)).ttl(Duration.ofHours(2));
+        final OffsetDateTime expired = OffsetDateTime.now().minusHours(3);
+        final JdbcKfkaMessageStore<CustomKfkaMessage> writer = store(config);
+        writer.addAll(List.of(message(1, "foo", expired), message(2, "foo")));
+
+        // A second store finds the buckets created by the first one
+        final JdbcKfkaMessageStore<CustomKfkaMessage> other = store(config);
+        final List<CustomKfkaMessage> live = new ArrayList<>();
+        other.sendAll(new KfkaPredicate(), live::add);
+        assertThat(ids(live)).containsExactly("000002");
+        assertThat(other.size()).isEqualTo(2L);
+
+        other.clearExpired();
+        assertThat(other.size()).isEqualTo(1L);
+
+        // The first store still knows the dropped bucket, and creates it again for a late message
+        writer.addAll(List.of(message(3, "foo", expired)));
+        assertThat(store(config).size()).isEqualTo(2L);
+    }
+
+    @Test
+    void testChunkedEvictionDeletesExpiredMessagesAddedToTheChunk()
+    {
+        final JdbcKfkaConfig config = new JdbcKfkaConfig().ttl(Duration.ofHours(1));
+        final OffsetDateTime expired = OffsetDateTime.now().minusHours(3);
+        final JdbcKfkaMessageStore<CustomKfkaMessage> writer = store(config);
+        writer.addAll(List.of(message(1, "foo", expired), message(3, "foo", expired), message(5, "foo", expired), message(7, "foo")));
+
+        // Another writer adds an expired message inside the range of the chunk just before it is deleted
+        final AtomicBoolean added = new AtomicBoolean();
+        final DataSource interleaving = intercept(DataSource.class, dataSource, (target, method, args) ->
+        {
+            final Object result = method.invoke(target, args);
+            return !method.getName().equals("getConnection") ? result : intercept(Connection.class, result, (conn, m, a) ->
+            {
+                if (m.getName().equals("prepareStatement") && ((String) a[0]).startsWith("DELETE") && !added.getAndSet(true))
+                {
+                    writer.addAll(List.of(message(2, "foo", expired)));
+                }
+                return m.invoke(conn, a);
+            });
+        });
+        final JdbcKfkaMessageStore<CustomKfkaMessage> store = new JdbcKfkaMessageStore<>(interleaving, TestCfg.ROW_MAPPER, config);
+
+        assertThat(store.clearExpired(2)).isEqualTo(3L);
+        assertThat(added).isTrue();
+        assertThat(store.size()).isEqualTo(2L);
+
+        assertThat(store.clearExpired(2)).isEqualTo(1L);
+        assertThat(store.clearExpired(2)).isEqualTo(0L);
+        assertThat(store.size()).isEqualTo(1L);
+    }
+}
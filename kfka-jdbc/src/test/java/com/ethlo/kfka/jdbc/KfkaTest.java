@@ -22,10 +22,12 @@ package com.ethlo.kfka.jdbc;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -40,9 +42,14 @@ import org.springframework.util.StopWatch;
 import com.acme.CustomKfkaMessage;
 import com.acme.CustomKfkaMessage.CustomKfkaMessageBuilder;
 import com.ethlo.kfka.CollectingListener;
+import com.ethlo.kfka.KfkaConfig;
 import com.ethlo.kfka.KfkaManager;
+import com.ethlo.kfka.KfkaManagerImpl;
 import com.ethlo.kfka.KfkaMessage;
+import com.ethlo.kfka.KfkaMessageHeader;
 import com.ethlo.kfka.KfkaPredicate;
+import com.ethlo.kfka.TimeOrderedMessageIdGenerator;
+import com.ethlo.kfka.persistence.KfkaMessageStore;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(classes = TestCfg.class)
@@ -54,6 +61,9 @@ public class KfkaTest
     @Autowired
     private KfkaManager<CustomKfkaMessage> kfkaManager;
 
+    @Autowired
+    private KfkaMessageStore<CustomKfkaMessage> messageStore;
+
     @Test
     void testQueryLast()
     {
@@ -170,6 +180,18 @@ public class KfkaTest
         assertThat(kfkaManager.size()).isEqualTo(2);
     }
 
+    @Test
+    void testSizeByPredicate()
+    {
+        kfkaManager.clear();
+        kfkaManager.add(new CustomKfkaMessageBuilder().userId(123).payload("myMessage1").topic("foo").type("mytype").build());
+        kfkaManager.add(new CustomKfkaMessageBuilder().userId(123).payload("myMessage2").topic("bar").type("mytype").build());
+        kfkaManager.add(new CustomKfkaMessageBuilder().userId(321).payload("myMessage3").topic("bar").type("other").build());
+        assertThat(kfkaManager.size(new KfkaPredicate().topic("bar"))).isEqualTo(2);
+        assertThat(kfkaManager.size(new KfkaPredicate().topic("bar").type("mytype"))).isEqualTo(1);
+        assertThat(kfkaManager.size(new KfkaPredicate().addPropertyMatch("userId", 123))).isEqualTo(2);
+    }
+
     @Test
     void testQueryWithRelativeOffsetFilteredByTopic()
     {
@@ -188,6 +210,27 @@ public class KfkaTest
         assertThat(received.get(0).getMessageId()).isEqualTo("000004");
     }
 
+    @Test
+    void testSendAfterWithLimit()
+    {
+        kfkaManager.clear();
+        for (int id = 1; id <= 5; id++)
+        {
+            kfkaManager.add(new CustomKfkaMessageBuilder().payload("" + id).topic("mytopic").type("mytype").build());
+        }
+
+        final List<KfkaMessage> received = new LinkedList<>();
+        assertThat(messageStore.sendAfter("000002", new KfkaPredicate(), 2, received::add)).isEqualTo(2);
+        assertThat(received.stream().map(KfkaMessage::getMessageId).toList()).containsExactly("000003", "000004");
+
+        received.clear();
+        assertThat(messageStore.sendAfter(null, new KfkaPredicate(), 1, received::add)).isEqualTo(1);
+        assertThat(received.get(0).getMessageId()).isEqualTo("000001");
+
+        received.clear();
+        assertThat(messageStore.sendAfter("000004", new KfkaPredicate(), 10, received::add)).isEqualTo(1);
+    }
+
     @Test
     public void testQueryWithRelativeOffsetFilteredByTopicAndCustomProperty() throws InterruptedException
     {
@@ -248,6 +291,53 @@ public class KfkaTest
         assertThat(l.getReceived()).isEmpty();
     }
 
+    @Test
+    void testSendHeadersAfter()
+    {
+        kfkaManager.clear();
+
+        kfkaManager.add(new CustomKfkaMessageBuilder().userId(123).payload("myMessage1").topic("bar").type("mytype").build());
+        kfkaManager.add(new CustomKfkaMessageBuilder().userId(123).payload("myMessage2").topic("bar").type("mytype").build());
+        kfkaManager.add(new CustomKfkaMessageBuilder().userId(321).payload("myMessage3").topic("foo").type("mytype").build());
+        kfkaManager.add(new CustomKfkaMessageBuilder().userId(456).payload("myMessage4").topic("bar").type("mytype").build());
+
+        final List<KfkaMessageHeader> headers = new ArrayList<>();
+        final int sent = messageStore.sendHeadersAfter("000001", new KfkaPredicate().topic("bar"), headers::add);
+
+        assertThat(sent).isEqualTo(2);
+        assertThat(headers.get(0).getMessageId()).isEqualTo("000002");
+        assertThat(headers.get(0).getProperty("userId")).isEqualTo(123);
+        assertThat(headers.get(1).getMessageId()).isEqualTo("000004");
+        assertThat(headers.get(1).getTopic()).isEqualTo("bar");
+        assertThat(headers.get(1).getProperty("userId")).isEqualTo(456);
+    }
+
+    @Test
+    void testTailsMessagesFromOtherManager() throws InterruptedException
+    {
+        kfkaManager.clear();
+        kfkaManager.add(new CustomKfkaMessageBuilder().payload("before").topic("foo").type("mytype").build());
+
+        final KfkaConfig config = new KfkaConfig().tail(Duration.ofMillis(1), Duration.ofMillis(50));
+        try (final KfkaManager<CustomKfkaMessage> otherNode = new KfkaManagerImpl<>(messageStore, new TimeOrderedMessageIdGenerator(2), config))
+        {
+            final List<CustomKfkaMessage> received = new CopyOnWriteArrayList<>();
+            otherNode.addListener(received::add, new KfkaPredicate().topic("foo"));
+
+            kfkaManager.add(new CustomKfkaMessageBuilder().payload("after1").topic("foo").type("mytype").build());
+            kfkaManager.add(new CustomKfkaMessageBuilder().payload("after2").topic("bar").type("mytype").build());
+            kfkaManager.add(new CustomKfkaMessageBuilder().payload("after3").topic("foo").type("mytype").build());
+
+            final long deadline = System.currentTimeMillis() + 5_000;
+            while (received.size() < 2 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(5);
+            }
+            Thread.sleep(100);
+            assertThat(received.stream().map(KfkaMessage::getMessageId).toList()).containsExactly("000002", "000004");
+        }
+    }
+
     @Test
     void testPerformance1()
     {
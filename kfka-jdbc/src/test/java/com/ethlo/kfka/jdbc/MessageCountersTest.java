@@ -0,0 +1,70 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class MessageCountersTest
+{
+    @Test
+    void testCountsByTopicAndType()
+    {
+        final MessageCounters counters = new MessageCounters(Duration.ofMinutes(5));
+        counters.add("chat", "text", 3);
+        counters.add("chat", "image", 2);
+        counters.add("news", "text", 1);
+        counters.add("chat", "text", -1);
+
+        assertThat(counters.count(null, null)).isEqualTo(5L);
+        assertThat(counters.count("chat", null)).isEqualTo(4L);
+        assertThat(counters.count(null, "text")).isEqualTo(3L);
+        assertThat(counters.count("news", "image")).isEqualTo(0L);
+    }
+
+    @Test
+    void testReconciliation()
+    {
+        final MessageCounters counters = new MessageCounters(Duration.ofSeconds(10));
+        assertThat(counters.needsReconciliation(0)).isTrue();
+        assertThat(counters.isLoaded()).isFalse();
+
+        counters.add("chat", "text", 7);
+        counters.reset(Map.of(new MessageCounters.Key("news", "text"), 4L), 1_000);
+        assertThat(counters.isLoaded()).isTrue();
+        assertThat(counters.count(null, null)).isEqualTo(4L);
+        assertThat(counters.needsReconciliation(10_999)).isFalse();
+        assertThat(counters.needsReconciliation(11_000)).isTrue();
+
+        counters.invalidate();
+        assertThat(counters.needsReconciliation(1_000)).isTrue();
+    }
+
+    @Test
+    void testOffByDefault()
+    {
+        assertThat(new JdbcKfkaConfig().getCounterReconcileInterval()).isEqualTo(Duration.ZERO);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SqlDialectTest
+{
+    @Test
+    void testLimitOffset()
+    {
+        final StringBuilder sql = new StringBuilder("SELECT message_id FROM kfka ORDER BY message_id DESC");
+        final List<Object> params = new ArrayList<>();
+        SqlDialect.MYSQL.appendLimit(sql, params, 1, 99);
+        assertThat(sql.toString()).isEqualTo("SELECT message_id FROM kfka ORDER BY message_id DESC LIMIT ? OFFSET ?");
+        assertThat(params).containsExactly(1, 99L);
+    }
+
+    @Test
+    void testLimitWithoutOffset()
+    {
+        final StringBuilder sql = new StringBuilder("SELECT * FROM kfka ORDER BY message_id");
+        final List<Object> params = new ArrayList<>();
+        SqlDialect.H2.appendLimit(sql, params, 500, 0);
+        assertThat(sql.toString()).isEqualTo("SELECT * FROM kfka ORDER BY message_id LIMIT ?");
+        assertThat(params).containsExactly(500);
+    }
+
+    @Test
+    void testFetchFirst()
+    {
+        final StringBuilder sql = new StringBuilder("SELECT message_id FROM kfka ORDER BY message_id DESC");
+        final List<Object> params = new ArrayList<>();
+        SqlDialect.SQL_SERVER.appendLimit(sql, params, 1, 99);
+        assertThat(sql.toString()).isEqualTo("SELECT message_id FROM kfka ORDER BY message_id DESC OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+        assertThat(params).containsExactly(99L, 1);
+    }
+
+    @Test
+    void testDetectFromProductName()
+    {
+        assertThat(SqlDialect.fromProductName("MySQL")).isEqualTo(SqlDialect.MYSQL);
+        assertThat(SqlDialect.fromProductName("MariaDB")).isEqualTo(SqlDialect.MYSQL);
+        assertThat(SqlDialect.fromProductName("H2")).isEqualTo(SqlDialect.H2);
+        assertThat(SqlDialect.fromProductName("PostgreSQL")).isEqualTo(SqlDialect.POSTGRESQL);
+        assertThat(SqlDialect.fromProductName("Microsoft SQL Server")).isEqualTo(SqlDialect.SQL_SERVER);
+        assertThat(SqlDialect.fromProductName("Apache Derby")).isEqualTo(SqlDialect.ANSI);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TableRouterTest
+{
+    @Test
+    void testDefaultsToConfigName()
+    {
+        final TableRouter router = new JdbcKfkaConfig().name("events").getTableRouter();
+        assertThat(router.getTable("any")).isEqualTo("events");
+        assertThat(router.getTables()).containsExactly("events");
+    }
+
+    @Test
+    void testMapping()
+    {
+        final TableRouter router = TableRouter.mapping(Map.of("clicks", "kfka_clicks", "views", "kfka_views"), "kfka");
+        assertThat(router.getTable("clicks")).isEqualTo("kfka_clicks");
+        assertThat(router.getTable("chat")).isEqualTo("kfka");
+        assertThat(router.getTables()).containsExactly("kfka", "kfka_clicks", "kfka_views");
+    }
+
+    @Test
+    void testHash()
+    {
+        final TableRouter router = TableRouter.hash("kfka", 4);
+        assertThat(router.getTables()).containsExactly("kfka_0", "kfka_1", "kfka_2", "kfka_3");
+        assertThat(router.getTable("chat")).isEqualTo(router.getTable("chat"));
+        assertThat(router.getTables()).contains(router.getTable("chat"));
+    }
+
+    @Test
+    void testRejectsInvalidName()
+    {
+        assertThatThrownBy(() -> TableRouter.single("kfka; DROP TABLE users")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
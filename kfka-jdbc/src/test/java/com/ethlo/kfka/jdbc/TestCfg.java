@@ -45,6 +45,16 @@ import com.ethlo.kfka.persistence.KfkaMessageStore;
 @EnableAutoConfiguration
 public class TestCfg
 {
+    static final RowMapper<CustomKfkaMessage> ROW_MAPPER = rs ->
+            new CustomKfkaMessageBuilder()
+                    .userId(rs.getInt("userId"))
+                    .payload(rs.getBytes("payload"))
+                    .timestamp(OffsetDateTime.ofInstant(Instant.ofEpochMilli(rs.getLong("timestamp")), ZoneOffset.UTC))
+                    .topic(rs.getString("topic"))
+                    .type(rs.getString("type"))
+                    .messageId(rs.getString("message_id"))
+                    .build();
+
     @Bean
     public static Flyway flyway(DataSource ds)
     {
@@ -57,16 +67,6 @@ public class TestCfg
     public KfkaMessageStore<CustomKfkaMessage> mapStore(DataSource ds)
     {
         final Duration ttl = Duration.ofMinutes(30);
-        final RowMapper<CustomKfkaMessage> ROW_MAPPER = rs ->
-                new CustomKfkaMessageBuilder()
-                        .userId(rs.getInt("userId"))
-                        .payload(rs.getBytes("payload"))
-                        .timestamp(OffsetDateTime.ofInstant(Instant.ofEpochMilli(rs.getLong("timestamp")), ZoneOffset.UTC))
-                        .topic(rs.getString("topic"))
-                        .type(rs.getString("type"))
-                        .messageId(rs.getString("message_id"))
-                        .build();
-
         return new JdbcKfkaMessageStore<>(ds, ROW_MAPPER, ttl, new GzipPayloadCompressor(), 10_000)
         {
         };
@@ -0,0 +1,77 @@
+package com.ethlo.kfka.jdbc;
+
+/*-
+ * #%L
+ * kfka-jdbc
+ * %%
+ * Copyright (C) 2017 - 2026 Morten Haraldsen (ethlo)
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class TimeBucketsTest
+{
+    private static final long TIMESTAMP = Instant.parse("2026-10-18T13:45:12Z").toEpochMilli();
+
+    @Test
+    void testHourlyNames()
+    {
+        final TimeBuckets buckets = new TimeBuckets(null, SqlDialect.H2, Duration.ofHours(1));
+        final long start = buckets.getBucketStart(TIMESTAMP);
+        assertThat(start).isEqualTo(Instant.parse("2026-10-18T13:00:00Z").toEpochMilli());
+        assertThat(buckets.getTableName("kfka", start)).isEqualTo("kfka_2026101813");
+        assertThat(buckets.parseBucketStart("kfka", "KFKA_2026101813")).isEqualTo(start);
+    }
+
+    @Test
+    void testDailyAndMinuteNames()
+    {
+        final TimeBuckets daily = new TimeBuckets(null, SqlDialect.H2, Duration.ofDays(1));
+        assertThat(daily.getTableName("kfka", daily.getBucketStart(TIMESTAMP))).isEqualTo("kfka_20261018");
+
+        final TimeBuckets quarters = new TimeBuckets(null, SqlDialect.H2, Duration.ofMinutes(15));
+        assertThat(quarters.getTableName("kfka", quarters.getBucketStart(TIMESTAMP))).isEqualTo("kfka_202610181345");
+    }
+
+    @Test
+    void testIgnoresOtherTables()
+    {
+        final TimeBuckets buckets = new TimeBuckets(null, SqlDialect.H2, Duration.ofHours(1));
+        assertThat(buckets.parseBucketStart("kfka", "kfka_1_2026101813")).isNull();
+        assertThat(buckets.parseBucketStart("kfka", "kfka_20261018")).isNull();
+        assertThat(buckets.parseBucketStart("kfka", "kfka_2026131813")).isNull();
+        assertThat(buckets.parseBucketStart("kfka_1", "kfka_1_2026101813")).isEqualTo(Instant.parse("2026-10-18T13:00:00Z").toEpochMilli());
+    }
+
+    @Test
+    void testRejectsPartialMinutes()
+    {
+        assertThatThrownBy(() -> new JdbcKfkaConfig().timeBuckets(Duration.ofSeconds(90))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testCreateTableLike()
+    {
+        assertThat(SqlDialect.MYSQL.createTableLike("kfka_20261018", "kfka")).containsExactly("CREATE TABLE IF NOT EXISTS kfka_20261018 LIKE kfka");
+        assertThat(SqlDialect.H2.createTableLike("kfka_20261018", "kfka")).hasSize(3);
+    }
+}
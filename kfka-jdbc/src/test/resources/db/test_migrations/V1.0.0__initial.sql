@@ -19,7 +19,7 @@
 ---
 CREATE TABLE `kfka`
 (
-    `message_id` varbinary(36) NOT NULL,
+    `message_id` varchar(36)   NOT NULL,
     `timestamp`  bigint        NOT NULL,
     `payload`    blob          NOT NULL,
     `topic`      varchar(255)  NOT NULL,